@@ -117,6 +117,19 @@ class BreadcrumbServiceTest : BaseMPServiceTest() {
         )
     }
 
+    @Test
+    @Throws(JSONException::class)
+    fun testBreadcrumbLimitChange() {
+        for (i in 0 until breadCrumbLimit) {
+            BreadcrumbService.insertBreadcrumb(database, mContext, message, "apiKey", 20L)
+        }
+        Assert.assertEquals(breadCrumbLimit.toLong(), BreadcrumbService.getBreadcrumbCount(database, 20L).toLong())
+        ConfigManager(mContext).setBreadcrumbLimit(2, 20L)
+        BreadcrumbService.insertBreadcrumb(database, mContext, message, "apiKey", 20L)
+        Assert.assertEquals(2, BreadcrumbService.getBreadcrumbCount(database, 20L).toLong())
+        Assert.assertEquals(2, BreadcrumbService.getBreadcrumbs(database, mContext, 20L).length().toLong())
+    }
+
     companion object {
         private var message: BaseMPMessage? = null
         private var breadCrumbLimit = 0
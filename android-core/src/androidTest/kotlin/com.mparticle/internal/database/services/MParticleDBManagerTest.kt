@@ -1,17 +1,30 @@
 package com.mparticle.internal.database.services
 
+import android.content.ContentValues
+import android.database.Cursor
 import android.os.Handler
 import android.os.Looper
+import com.mparticle.MParticleOptions
 import com.mparticle.TypedUserAttributeListener
 import com.mparticle.identity.UserAttributeListenerWrapper
+import com.mparticle.internal.Constants
+import com.mparticle.internal.InternalSession
+import com.mparticle.internal.database.MPDatabase
+import com.mparticle.internal.database.UploadSettings
+import com.mparticle.internal.database.tables.MessageTable
 import com.mparticle.internal.database.services.MParticleDBManager.UserAttributeRemoval
 import com.mparticle.internal.database.services.MParticleDBManager.UserAttributeResponse
+import com.mparticle.internal.messages.BaseMPMessage
+import com.mparticle.networking.NetworkOptions
 import com.mparticle.testutils.AndroidUtils
 import com.mparticle.testutils.BaseCleanInstallEachTest
 import com.mparticle.testutils.MPLatch
+import org.json.JSONObject
 import org.junit.Assert
 import org.junit.Test
 import java.util.TreeMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 
 class MParticleDBManagerTest : BaseCleanInstallEachTest() {
     @Test
@@ -156,4 +169,234 @@ class MParticleDBManagerTest : BaseCleanInstallEachTest() {
         // thread is know to not be an issue w/db access
         Assert.assertEquals("mParticleMessageHandler", dbAccessThread.value?.name)
     }
+
+    @Test
+    @Throws(Exception::class)
+    fun testHasMessagesForUploadSkipsQueryWhenNothingStored() {
+        var queries = 0
+        val manager = object : MParticleDBManager(mContext) {
+            override fun getDatabase(): MPDatabase {
+                queries++
+                return super.getDatabase()
+            }
+        }
+        Assert.assertFalse(manager.hasMessagesForUpload())
+        Assert.assertEquals(1, queries)
+        Assert.assertFalse(manager.hasMessagesForUpload())
+        Assert.assertEquals(1, queries)
+        val message = BaseMPMessage.Builder(Constants.MessageType.EVENT)
+            .timestamp(System.currentTimeMillis() - 1000)
+            .build(InternalSession(), null, 10L)
+        manager.insertMessage("apiKey", message, null, null)
+        Assert.assertTrue(manager.hasMessagesForUpload())
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testHasMessagesForUploadProbeBeforeCommit() {
+        var probeInTransaction = false
+        lateinit var manager: MParticleDBManager
+        manager = object : MParticleDBManager(mContext) {
+            override fun getDatabase(): MPDatabase {
+                val database = super.getDatabase()
+                return object : MPDatabase by database {
+                    override fun beginTransaction() {
+                        database.beginTransaction()
+                        if (probeInTransaction) {
+                            probeInTransaction = false
+                            // the upload thread probing before the transaction has been committed
+                            Assert.assertFalse(manager.hasMessagesForUpload())
+                        }
+                    }
+                }
+            }
+        }
+        val message = BaseMPMessage.Builder(Constants.MessageType.EVENT)
+            .timestamp(System.currentTimeMillis() - 1000)
+            .build(InternalSession(), null, Constants.TEMPORARY_MPID)
+        manager.insertMessage("apiKey", message, null, null)
+        Assert.assertFalse(manager.hasMessagesForUpload())
+        probeInTransaction = true
+        manager.updateMpId(Constants.TEMPORARY_MPID, 10L)
+        Assert.assertFalse(probeInTransaction)
+        Assert.assertTrue(manager.hasMessagesForUpload())
+
+        manager.database.delete(MessageTable.MessageTableColumns.TABLE_NAME, null, null)
+        Assert.assertFalse(manager.hasMessagesForUpload())
+        val batchedMessage = BaseMPMessage.Builder(Constants.MessageType.EVENT)
+            .timestamp(System.currentTimeMillis() - 1000)
+            .build(InternalSession(), null, 10L)
+        val database = manager.database
+        database.beginTransaction()
+        try {
+            manager.insertMessage("apiKey", batchedMessage, null, null, true)
+            Assert.assertFalse(manager.hasMessagesForUpload())
+            database.setTransactionSuccessful()
+        } finally {
+            database.endTransaction()
+        }
+        manager.onMessagesCommitted()
+        Assert.assertTrue(manager.hasMessagesForUpload())
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testReadyUploadIteratorPages() {
+        val manager = MParticleDBManager(mContext)
+        val uploadSettings = UploadSettings("apiKey", "secret", NetworkOptions.builder().build(), "", "")
+        for (i in 0 until 25) {
+            manager.insertAliasRequest(JSONObject().put("i", i), uploadSettings)
+        }
+        val iterator = manager.readyUploadIterator
+        var count = 0
+        while (iterator.hasNext()) {
+            val readyUpload = iterator.next()
+            Assert.assertEquals(count, JSONObject(readyUpload.message).getInt("i"))
+            manager.deleteUpload(readyUpload.id)
+            count++
+        }
+        Assert.assertEquals(25, count)
+        Assert.assertTrue(manager.readyUploads.isEmpty())
+
+        val largeValue = "a".repeat(Constants.LIMIT_MAX_UPLOAD_SIZE - 20)
+        for (i in 0 until 3) {
+            manager.insertAliasRequest(JSONObject().put("i", largeValue), uploadSettings)
+        }
+        val page = UploadService.getReadyUploads(
+            manager.database,
+            Long.MIN_VALUE,
+            Int.MIN_VALUE,
+            MParticleDBManager.READY_UPLOAD_PAGE_SIZE,
+            MParticleDBManager.READY_UPLOAD_PAGE_LENGTH
+        )
+        Assert.assertEquals(2, page.uploads.size)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testReadyUploadIteratorSkipsUnreadablePages() {
+        val manager = MParticleDBManager(mContext)
+        val uploadSettings = UploadSettings("apiKey", "secret", NetworkOptions.builder().build(), "", "")
+        // more rows without a message than fit in one page
+        for (i in 0 until MParticleDBManager.READY_UPLOAD_PAGE_SIZE + 2) {
+            val contentValues = ContentValues()
+            contentValues.put("api_key", "apiKey")
+            contentValues.put("message_time", 1L)
+            contentValues.putNull("message")
+            manager.database.insert("uploads", null, contentValues)
+        }
+        manager.insertAliasRequest(JSONObject().put("i", 0), uploadSettings)
+        val iterator = manager.readyUploadIterator
+        Assert.assertTrue(iterator.hasNext())
+        Assert.assertEquals(0, JSONObject(iterator.next().message).getInt("i"))
+        Assert.assertFalse(iterator.hasNext())
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testUserAttributesReadFromCache() {
+        var queries = 0
+        val manager = object : MParticleDBManager(mContext) {
+            override fun getDatabase(): MPDatabase {
+                queries++
+                return super.getDatabase()
+            }
+        }
+        val attributes = UserAttributeResponse()
+        attributes.mpId = 11L
+        attributes.attributeSingles = hashMapOf<String, Any>("foo" to "bar", "count" to "3")
+        attributes.attributeLists = hashMapOf<String, List<String>>("list" to listOf("a", "b"))
+        manager.setUserAttribute(attributes)
+        val userAttributes = manager.getUserAttributes(11L)
+        Assert.assertEquals("bar", userAttributes["foo"])
+        Assert.assertEquals(3L, (userAttributes["count"] as Number).toLong())
+        Assert.assertEquals(listOf("a", "b"), userAttributes["list"])
+        val queriesAfterWrite = queries
+        (manager.getUserAttributeLists(11L)["list"] as MutableList<String>).add("c")
+        manager.getUserAttributeSingles(11L).clear()
+        Assert.assertEquals(userAttributes, manager.getUserAttributes(11L))
+        Assert.assertEquals(queriesAfterWrite, queries)
+
+        val removal = UserAttributeRemoval()
+        removal.key = "foo"
+        removal.mpId = 11L
+        manager.removeUserAttribute(removal, null)
+        Assert.assertNull(manager.getUserAttributes(11L)["foo"])
+        Assert.assertNull(MParticleDBManager(mContext).getUserAttributes(11L)["foo"])
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testWriteAheadLoggingEnabled() {
+        val options = MParticleOptions.builder(mContext)
+            .credentials("key", "secret")
+            .writeAheadLoggingEnabled(true)
+            .build()
+        val manager = MParticleDBManager(mContext, options)
+        val cursor = manager.database.rawQuery("PRAGMA journal_mode")
+        cursor.moveToFirst()
+        Assert.assertEquals("wal", cursor.getString(0).toLowerCase())
+        cursor.close()
+
+        for (i in 0..2) {
+            val attributes = UserAttributeResponse()
+            attributes.mpId = 12L
+            attributes.attributeSingles = hashMapOf<String, Any>("foo$i" to "bar$i")
+            attributes.attributeLists = hashMapOf<String, List<String>>("list$i" to listOf("a", "b"))
+            manager.setUserAttribute(attributes)
+        }
+        val userAttributes = MParticleDBManager(mContext, options).getUserAttributes(12L)
+        for (i in 0..2) {
+            Assert.assertEquals("bar$i", userAttributes["foo$i"])
+            Assert.assertEquals(listOf("a", "b"), userAttributes["list$i"])
+        }
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testOlderUserAttributeRefreshDoesNotReplaceNewer() {
+        val listsQueried = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        var slowThread: Thread? = null
+        val manager = object : MParticleDBManager(mContext) {
+            override fun getDatabase(): MPDatabase {
+                val database = super.getDatabase()
+                return object : MPDatabase by database {
+                    override fun query(
+                        table: String?,
+                        columns: Array<out String>?,
+                        selection: String?,
+                        selectionArgs: Array<out String>?,
+                        groupBy: String?,
+                        having: String?,
+                        orderBy: String?
+                    ): Cursor {
+                        // the slow refresh has read its singles, and stalls before reading its lists
+                        if (Thread.currentThread() == slowThread && selection?.startsWith("is_list = ") == true) {
+                            listsQueried.countDown()
+                            release.await(10, TimeUnit.SECONDS)
+                        }
+                        return database.query(table, columns, selection, selectionArgs, groupBy, having, orderBy)
+                    }
+                }
+            }
+        }
+        // warm, so the only lists query on the slow thread is its refresh after committing
+        manager.getUserAttributes(12L)
+        val older = UserAttributeResponse()
+        older.mpId = 12L
+        older.attributeSingles = hashMapOf<String, Any>("foo" to "older")
+        val thread = Thread { manager.setUserAttribute(older) }
+        slowThread = thread
+        thread.start()
+        Assert.assertTrue(listsQueried.await(10, TimeUnit.SECONDS))
+
+        val newer = UserAttributeResponse()
+        newer.mpId = 12L
+        newer.attributeSingles = hashMapOf<String, Any>("foo" to "newer")
+        manager.setUserAttribute(newer)
+        release.countDown()
+        thread.join(10000)
+        Assert.assertEquals("newer", manager.getUserAttributes(12L)["foo"])
+    }
 }
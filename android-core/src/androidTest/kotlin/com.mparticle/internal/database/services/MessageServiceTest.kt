@@ -4,6 +4,7 @@ import android.location.Location
 import com.mparticle.internal.Constants
 import com.mparticle.internal.InternalSession
 import com.mparticle.internal.database.services.MessageService.ReadyMessage
+import com.mparticle.internal.database.tables.MessageTable
 import com.mparticle.internal.messages.BaseMPMessage
 import org.json.JSONException
 import org.junit.Assert
@@ -365,6 +366,31 @@ class MessageServiceTest : BaseMPServiceTest() {
         Assert.assertEquals(MessageService.getMessagesForUpload(database).size.toLong(), 20)
     }
 
+    @Test
+    @Throws(JSONException::class)
+    fun testMessageLengthAndIndexes() {
+        val message = mpMessage
+        MessageService.insertMessage(database, "apiKey", message, 1, "a", 1)
+        database.rawQuery("SELECT " + MessageTable.MessageTableColumns.MESSAGE_LENGTH + ", length(" + MessageTable.MessageTableColumns.MESSAGE + ") FROM " + MessageTable.MessageTableColumns.TABLE_NAME).use { cursor ->
+            Assert.assertTrue(cursor.moveToFirst())
+            Assert.assertEquals(cursor.getLong(1), cursor.getLong(0))
+        }
+        Assert.assertEquals(0, MessageService.cleanupMessages(database).toLong())
+        assertQueryPlanUses("SELECT DISTINCT session_id FROM messages", "messages_session_idx")
+        assertQueryPlanUses("SELECT _id FROM messages WHERE message_length > " + Constants.LIMIT_MAX_MESSAGE_SIZE, "messages_length_idx")
+        assertQueryPlanUses("SELECT _id FROM messages WHERE upload_status = " + Constants.Status.UPLOADED + " ORDER BY _id", "messages_status_idx")
+    }
+
+    private fun assertQueryPlanUses(query: String, index: String) {
+        val plan = StringBuilder()
+        database.rawQuery("EXPLAIN QUERY PLAN $query").use { cursor ->
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnIndexOrThrow("detail")))
+            }
+        }
+        Assert.assertTrue(plan.toString(), plan.contains(index))
+    }
+
     private fun getMaxId(messages: List<ReadyMessage>): Int {
         var max = 0
         for (message in messages) {
@@ -76,6 +76,36 @@ class SessionServiceTest : BaseMPServiceTest() {
         }
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun testProcessSessionsReadsOnlyBatchedSessions() {
+        val sessionIds = listOf("session-1", "session-2", "session-3")
+        for (sessionId in sessionIds) {
+            val appInfo = JSONObject().put("app", sessionId)
+            val deviceInfo = JSONObject().put("device", sessionId)
+            SessionService.insertSession(
+                database,
+                getMpMessage(sessionId),
+                "foo-app-key",
+                appInfo.toString(),
+                deviceInfo.toString(),
+                1
+            )
+        }
+        val batchMap = HashMap<BatchId, MessageBatch>()
+        val first = MockMessageBatch(1)
+        val second = MockMessageBatch(2)
+        val third = MockMessageBatch(3)
+        batchMap[BatchId(1, "session-1", null, null)] = first
+        batchMap[BatchId(2, "session-1", null, null)] = second
+        batchMap[BatchId(1, "session-3", null, null)] = third
+        val deviceInfos = SessionService.processSessions(database, batchMap)
+        assertEquals(2, deviceInfos.size)
+        assertEquals("session-1", first.appInfo.getString("app"))
+        Assert.assertSame(first.deviceInfo, second.deviceInfo)
+        assertEquals("session-3", third.deviceInfo.getString("device"))
+    }
+
     internal inner class MockMessageBatch(var id: Int) : MessageBatch() {
         override fun equals(other: Any?): Boolean {
             return if (other is MockMessageBatch) {
@@ -44,6 +44,7 @@ import com.mparticle.internal.MParticleJSInterface;
 import com.mparticle.internal.MessageManager;
 import com.mparticle.internal.PushRegistrationHelper;
 import com.mparticle.internal.database.UploadSettings;
+import com.mparticle.internal.database.services.BreadcrumbService;
 import com.mparticle.internal.database.services.MParticleDBManager;
 import com.mparticle.internal.database.tables.MParticleDatabaseHelper;
 import com.mparticle.internal.listeners.ApiClass;
@@ -124,6 +125,7 @@ public class MParticle {
     private MParticle(MParticleOptions options) {
         ConfigManager configManager = new ConfigManager(options);
         configManager.setUploadInterval(options.getUploadInterval());
+        configManager.setUploadConcurrency(options.getUploadConcurrency());
         configManager.setSessionTimeout(options.getSessionTimeout());
         configManager.setIdentityConnectionTimeout(options.getConnectionTimeout());
         AppStateManager appStateManager = new AppStateManager(options.getContext());
@@ -489,7 +491,7 @@ public class MParticle {
         } else {
             if (mConfigManager.isEnabled()) {
                 mAppStateManager.ensureActiveSession();
-                Logger.debug("Logged event - \n", event.toString());
+                Logger.debug(() -> "Logged event - \n" + event.toString());
                 mKitManager.logEvent(event);
             }
         }
@@ -504,7 +506,7 @@ public class MParticle {
         if (mConfigManager.isEnabled()) {
             mAppStateManager.ensureActiveSession();
             mMessageManager.logEvent(event, mAppStateManager.getCurrentActivityName());
-            Logger.debug("Logged event - \n", event.toString());
+            Logger.debug(() -> "Logged event - \n" + event.toString());
             mKitManager.logEvent(event);
         }
     }
@@ -519,7 +521,7 @@ public class MParticle {
         if (mConfigManager.isEnabled()) {
             mAppStateManager.ensureActiveSession();
             mMessageManager.logEvent(event);
-            Logger.debug("Logged commerce event - \n", event.toString());
+            Logger.debug(() -> "Logged commerce event - \n" + event.toString());
             mKitManager.logEvent(event);
         }
     }
@@ -598,7 +600,7 @@ public class MParticle {
         mAppStateManager.ensureActiveSession();
         if (mConfigManager.isEnabled() && screenEvent.isShouldUploadEvent()) {
             mMessageManager.logScreen(screenEvent, screenEvent.getNavigationDirection());
-            Logger.debug("Logged screen: ", screenEvent.toString());
+            Logger.debug(() -> "Logged screen: " + screenEvent.toString());
         }
         if (screenEvent.getNavigationDirection()) {
             mKitManager.logScreen(screenEvent);
@@ -652,7 +654,7 @@ public class MParticle {
             mAppStateManager.ensureActiveSession();
             JSONObject eventDataJSON = MPUtility.enforceAttributeConstraints(errorAttributes);
             mMessageManager.logErrorEvent(message, null, eventDataJSON);
-            Logger.debug("Logged error with message: " + (message == null ? "<none>" : message) +
+            Logger.debug(() -> "Logged error with message: " + (message == null ? "<none>" : message) +
                     " with data: " + (eventDataJSON == null ? "<none>" : eventDataJSON.toString())
             );
             mKitManager.logError(message, errorAttributes);
@@ -724,7 +726,7 @@ public class MParticle {
             mAppStateManager.ensureActiveSession();
             JSONObject eventDataJSON = MPUtility.enforceAttributeConstraints(eventData);
             mMessageManager.logErrorEvent(message, exception, eventDataJSON);
-            Logger.debug(
+            Logger.debug(() ->
                     "Logged exception with message: " + (message == null ? "<none>" : message) +
                             " with data: " + (eventDataJSON == null ? "<none>" : eventDataJSON.toString()) +
                             " with exception: " + (exception == null ? "<none>" : exception.getMessage())
@@ -1281,8 +1283,12 @@ public class MParticle {
                 }
             }
 
+            //the cached breadcrumb limits were read from the user storage files deleted above
+            ConfigManager.clearBreadcrumbLimits();
+
             if (deleteDatabase) {
                 context.deleteDatabase(MParticleDatabaseHelper.getDbName());
+                BreadcrumbService.clearBreadcrumbRings();
             } else if (switchingWorkspaces) {
                 new MParticleDBManager(context).resetDatabaseForWorkspaceSwitching();
             }
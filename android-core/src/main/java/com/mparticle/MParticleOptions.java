@@ -40,8 +40,12 @@ public class MParticleOptions {
     private Boolean mAndroidIdEnabled = false;
     private Integer mUploadInterval = ConfigManager.DEFAULT_UPLOAD_INTERVAL;  //seconds
     private Integer mSessionTimeout = ConfigManager.DEFAULT_SESSION_TIMEOUT_SECONDS; //seconds
+    private Integer mUploadConcurrency = ConfigManager.DEFAULT_UPLOAD_CONCURRENCY;
+    private Integer mStoreMessageLatency = ConfigManager.DEFAULT_STORE_MESSAGE_LATENCY_MILLIS; //milliseconds
+    private Integer mKitQueueCapacity = ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY;
     private Integer mConfigMaxAge = null;
     private Boolean mUnCaughtExceptionLogging = false;
+    private Boolean mWriteAheadLoggingEnabled = false;
     private MParticle.LogLevel mLogLevel = MParticle.LogLevel.DEBUG;
     private AttributionListener mAttributionListener;
     private BatchCreationListener batchCreationListener = null;
@@ -102,6 +106,39 @@ public class MParticleOptions {
                 this.mUploadInterval = builder.uploadInterval;
             }
         }
+        if (builder.uploadConcurrency != null) {
+            if (builder.uploadConcurrency <= 0) {
+                Logger.warning("Upload Concurrency must be a positive number, disregarding value.");
+            } else if (builder.uploadConcurrency > ConfigManager.MAX_UPLOAD_CONCURRENCY) {
+                Logger.warning(String.format("Upload Concurrency must not be greater than %s, defaulting to %s.", ConfigManager.MAX_UPLOAD_CONCURRENCY, ConfigManager.MAX_UPLOAD_CONCURRENCY));
+                this.mUploadConcurrency = ConfigManager.MAX_UPLOAD_CONCURRENCY;
+            } else {
+                this.mUploadConcurrency = builder.uploadConcurrency;
+            }
+        }
+        if (builder.storeMessageLatency != null) {
+            if (builder.storeMessageLatency < 0) {
+                Logger.warning("Store Message Latency must not be negative, disregarding value.");
+            } else if (builder.storeMessageLatency > ConfigManager.MAX_STORE_MESSAGE_LATENCY_MILLIS) {
+                Logger.warning(String.format("Store Message Latency must not be greater than %s, defaulting to %s.", ConfigManager.MAX_STORE_MESSAGE_LATENCY_MILLIS, ConfigManager.MAX_STORE_MESSAGE_LATENCY_MILLIS));
+                this.mStoreMessageLatency = ConfigManager.MAX_STORE_MESSAGE_LATENCY_MILLIS;
+            } else {
+                this.mStoreMessageLatency = builder.storeMessageLatency;
+            }
+        }
+        if (builder.kitQueueCapacity != null) {
+            if (builder.kitQueueCapacity <= 0) {
+                Logger.warning("Kit Queue Capacity must be a positive number, disregarding value.");
+            } else if (builder.kitQueueCapacity > ConfigManager.MAX_KIT_QUEUE_CAPACITY) {
+                Logger.warning(String.format("Kit Queue Capacity must not be greater than %s, defaulting to %s.", ConfigManager.MAX_KIT_QUEUE_CAPACITY, ConfigManager.MAX_KIT_QUEUE_CAPACITY));
+                this.mKitQueueCapacity = ConfigManager.MAX_KIT_QUEUE_CAPACITY;
+            } else {
+                this.mKitQueueCapacity = builder.kitQueueCapacity;
+            }
+        }
+        if (builder.writeAheadLoggingEnabled != null) {
+            this.mWriteAheadLoggingEnabled = builder.writeAheadLoggingEnabled;
+        }
         if (builder.sessionTimeout != null) {
             if (builder.sessionTimeout <= 0) {
                 Logger.warning("Session Timeout must be a positive number, disregarding value.");
@@ -277,6 +314,46 @@ public class MParticleOptions {
         return mUploadInterval;
     }
 
+    /**
+     * Query the uploadConcurrency.
+     *
+     * @return the maximum number of batch uploads in-flight at once
+     */
+    @NonNull
+    public Integer getUploadConcurrency() {
+        return mUploadConcurrency;
+    }
+
+    /**
+     * Query the storeMessageLatency.
+     *
+     * @return the maximum time, in milliseconds, a logged message may wait to be written to storage
+     */
+    @NonNull
+    public Integer getStoreMessageLatency() {
+        return mStoreMessageLatency;
+    }
+
+    /**
+     * Query the kitQueueCapacity.
+     *
+     * @return the maximum number of events, and of user attribute changes, held for kits until they are loaded
+     */
+    @NonNull
+    public Integer getKitQueueCapacity() {
+        return mKitQueueCapacity;
+    }
+
+    /**
+     * Query whether the SDK's database uses write-ahead logging.
+     *
+     * @return true if write-ahead logging is enabled, false if it is disabled
+     */
+    @NonNull
+    public Boolean isWriteAheadLoggingEnabled() {
+        return mWriteAheadLoggingEnabled;
+    }
+
     @NonNull
     public Integer getSessionTimeout() {
         return mSessionTimeout;
@@ -394,6 +471,10 @@ public class MParticleOptions {
         private Boolean androidIdEnabled = null;
         private Integer uploadInterval = null;
         private Integer sessionTimeout = null;
+        private Integer uploadConcurrency = null;
+        private Integer storeMessageLatency = null;
+        private Integer kitQueueCapacity = null;
+        private Boolean writeAheadLoggingEnabled = null;
         private Integer configMaxAge = null;
         private Boolean unCaughtExceptionLogging = null;
         MParticle.LogLevel logLevel = null;
@@ -578,6 +659,72 @@ public class MParticleOptions {
             return this;
         }
 
+        /**
+         * Set the maximum number of message batches which may be uploaded at the same time.
+         * <p></p>
+         * By default batches are uploaded one at a time. When a device has a backlog of batches, for
+         * example after a period offline, a higher value lets the backlog drain without waiting a
+         * full round-trip per batch. Batches are still removed from storage in the order they were
+         * created. Values greater than 4 are reduced to 4.
+         *
+         * @param uploadConcurrency the number of batch uploads allowed in-flight at once
+         * @return the instance of the builder, for chaining calls
+         */
+        @NonNull
+        public Builder uploadConcurrency(int uploadConcurrency) {
+            this.uploadConcurrency = uploadConcurrency;
+            return this;
+        }
+
+        /**
+         * Set the maximum time, in milliseconds, a logged message may wait before it is written to storage.
+         * <p></p>
+         * Messages logged in quick succession are always written to storage together, in a single
+         * transaction. A positive value additionally allows messages logged up to this long apart to
+         * share a transaction, at the cost of a message being lost if the process is killed before it
+         * is written. Defaults to 0. Values greater than 5000 are reduced to 5000.
+         *
+         * @param storeMessageLatency the latency, in milliseconds
+         * @return the instance of the builder, for chaining calls
+         */
+        @NonNull
+        public Builder storeMessageLatency(int storeMessageLatency) {
+            this.storeMessageLatency = storeMessageLatency;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of events, and of user attribute changes, held for kits while they wait
+         * for their initial configuration.
+         * <p></p>
+         * Once either limit is reached, further events or attribute changes are not forwarded to kits,
+         * though they are still uploaded to mParticle. Defaults to 100. Values greater than 10000 are
+         * reduced to 10000.
+         *
+         * @param kitQueueCapacity the capacity
+         * @return the instance of the builder, for chaining calls
+         */
+        @NonNull
+        public Builder kitQueueCapacity(int kitQueueCapacity) {
+            this.kitQueueCapacity = kitQueueCapacity;
+            return this;
+        }
+
+        /**
+         * Enable write-ahead logging for the SDK's database.
+         * <p></p>
+         * In this mode, events can be stored while uploads are being prepared on another thread.
+         * Requires API level 16 or higher, and is ignored on older devices.
+         *
+         * @param enabled true to enable write-ahead logging (false by default)
+         * @return the instance of the builder, for chaining calls
+         */
+        @NonNull
+        public Builder writeAheadLoggingEnabled(boolean enabled) {
+            this.writeAheadLoggingEnabled = enabled;
+            return this;
+        }
+
         /**
          * Set the user session timeout interval.
          * <p></p>
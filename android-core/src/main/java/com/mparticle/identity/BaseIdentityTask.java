@@ -17,6 +17,8 @@ public final class BaseIdentityTask extends MParticleTask<IdentityApiResult> {
     IdentityApiResult result;
     Set<TaskSuccessListener> successListeners = new HashSet<TaskSuccessListener>();
     Set<TaskFailureListener> failureListeners = new HashSet<TaskFailureListener>();
+    volatile long queueTimeMillis = -1;
+    volatile long networkTimeMillis = -1;
 
     public void setFailed(@Nullable final IdentityHttpResponse errorResponse) {
         isCompleted = true;
@@ -46,6 +48,27 @@ public final class BaseIdentityTask extends MParticleTask<IdentityApiResult> {
         });
     }
 
+    void setTimings(long queueTimeMillis, long networkTimeMillis) {
+        this.queueTimeMillis = queueTimeMillis;
+        this.networkTimeMillis = networkTimeMillis;
+    }
+
+    /**
+     * The time, in milliseconds, this request spent waiting for the identity thread before it
+     * started executing, or -1 if the request has not started yet.
+     */
+    public long getQueueTimeMillis() {
+        return queueTimeMillis;
+    }
+
+    /**
+     * The time, in milliseconds, spent on the Identity network call itself, or -1 if the call
+     * has not completed, or was never made.
+     */
+    public long getNetworkTimeMillis() {
+        return networkTimeMillis;
+    }
+
     @Override
     public boolean isComplete() {
         return isCompleted;
@@ -59,7 +59,7 @@ public class IdentityApi {
     @SuppressLint("UnknownNullness")
     public IdentityApi(Context context, AppStateManager appStateManager, MessageManager messageManager, ConfigManager configManager, KitManager kitManager, MParticle.OperatingSystem operatingSystem) {
         this.mContext = context;
-        this.mBackgroundHandler = messageManager.mUploadHandler;
+        this.mBackgroundHandler = messageManager.mIdentityHandler != null ? messageManager.mIdentityHandler : messageManager.mUploadHandler;
         this.mUserDelegate = new MParticleUserDelegate(appStateManager, configManager, messageManager, kitManager);
         this.mConfigManager = configManager;
         this.mMessageManager = messageManager;
@@ -165,7 +165,7 @@ public class IdentityApi {
      */
     @NonNull
     public MParticleTask<IdentityApiResult> logout(@Nullable final IdentityApiRequest logoutRequest) {
-        return makeIdentityRequest(logoutRequest, new IdentityNetworkRequestRunnable() {
+        return makeIdentityRequest("logout", logoutRequest, new IdentityNetworkRequestRunnable() {
             @Override
             public IdentityHttpResponse request(IdentityApiRequest request) throws Exception {
                 return getApiClient().logout(request);
@@ -200,7 +200,7 @@ public class IdentityApi {
      */
     @NonNull
     public MParticleTask<IdentityApiResult> login(@Nullable final IdentityApiRequest loginRequest) {
-        return makeIdentityRequest(loginRequest, new IdentityNetworkRequestRunnable() {
+        return makeIdentityRequest("login", loginRequest, new IdentityNetworkRequestRunnable() {
             @Override
             public IdentityHttpResponse request(IdentityApiRequest request) throws Exception {
                 return getApiClient().login(request);
@@ -223,7 +223,7 @@ public class IdentityApi {
      */
     @NonNull
     public MParticleTask<IdentityApiResult> identify(@Nullable final IdentityApiRequest identifyRequest) {
-        return makeIdentityRequest(identifyRequest, new IdentityNetworkRequestRunnable() {
+        return makeIdentityRequest("identify", identifyRequest, new IdentityNetworkRequestRunnable() {
             @Override
             public IdentityHttpResponse request(IdentityApiRequest request) throws Exception {
                 return getApiClient().identify(request);
@@ -262,11 +262,15 @@ public class IdentityApi {
             task.setFailed(new IdentityHttpResponse(IdentityApi.UNKNOWN_ERROR, message));
             return task;
         }
+        final long enqueuedTime = MPUtility.millitime();
         mBackgroundHandler.post(new Runnable() {
             @Override
             public void run() {
+                long startTime = MPUtility.millitime();
+                task.setTimings(startTime - enqueuedTime, -1);
                 try {
                     final IdentityHttpResponse result = getApiClient().modify(updateRequest);
+                    logTimings("modify", task, startTime);
                     if (!result.isSuccessful()) {
                         task.setFailed(result);
                     } else {
@@ -348,13 +352,14 @@ public class IdentityApi {
         }
     }
 
-    private BaseIdentityTask makeIdentityRequest(IdentityApiRequest request, final IdentityNetworkRequestRunnable networkRequest) {
+    private BaseIdentityTask makeIdentityRequest(final String requestType, IdentityApiRequest request, final IdentityNetworkRequestRunnable networkRequest) {
         if (request == null) {
             request = IdentityApiRequest.withEmptyUser().build();
         }
         final BaseIdentityTask task = new BaseIdentityTask();
         ConfigManager.setIdentityRequestInProgress(true);
         final IdentityApiRequest identityApiRequest = request;
+        final long enqueuedTime = MPUtility.millitime();
         mBackgroundHandler.post(new Runnable() {
             @Override
             public void run() {
@@ -362,9 +367,12 @@ public class IdentityApi {
                     if (mBackgroundHandler.isDisabled()) {
                         return;
                     }
+                    long startTime = MPUtility.millitime();
+                    task.setTimings(startTime - enqueuedTime, -1);
                     try {
                         long startingMpid = mConfigManager.getMpid();
                         final IdentityHttpResponse result = networkRequest.request(identityApiRequest);
+                        logTimings(requestType, task, startTime);
 
                         if (!result.isSuccessful()) {
                             ConfigManager.setIdentityRequestInProgress(false);
@@ -393,6 +401,11 @@ public class IdentityApi {
         return task;
     }
 
+    private void logTimings(String requestType, BaseIdentityTask task, long startTime) {
+        task.setTimings(task.getQueueTimeMillis(), MPUtility.millitime() - startTime);
+        Logger.verbose("Identity " + requestType + " request waited " + task.getQueueTimeMillis() + "ms in queue, network call took " + task.getNetworkTimeMillis() + "ms");
+    }
+
     MParticleIdentityClient getApiClient() {
         if (mApiClient == null) {
             mApiClient = new MParticleIdentityClientImpl(mContext, mConfigManager, mOperatingSystem);
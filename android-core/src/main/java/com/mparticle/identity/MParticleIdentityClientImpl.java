@@ -75,7 +75,7 @@ public class MParticleIdentityClientImpl extends MParticleBaseClientImpl impleme
 
     public IdentityHttpResponse login(IdentityApiRequest request) throws JSONException, IOException {
         JSONObject jsonObject = getStateJson(request);
-        Logger.verbose("Identity login request: " + jsonObject.toString());
+        Logger.verbose(() -> "Identity login request: " + jsonObject.toString());
         MPConnection connection = getPostConnection(LOGIN_PATH, jsonObject.toString());
         String url = connection.getURL().toString();
         InternalListenerManager.getListener().onNetworkRequestStarted(SdkListener.Endpoint.IDENTITY_LOGIN, url, jsonObject, request);
@@ -88,7 +88,7 @@ public class MParticleIdentityClientImpl extends MParticleBaseClientImpl impleme
 
     public IdentityHttpResponse logout(IdentityApiRequest request) throws JSONException, IOException {
         JSONObject jsonObject = getStateJson(request);
-        Logger.verbose("Identity logout request: \n" + jsonObject.toString());
+        Logger.verbose(() -> "Identity logout request: \n" + jsonObject.toString());
         MPConnection connection = getPostConnection(LOGOUT_PATH, jsonObject.toString());
         String url = connection.getURL().toString();
         InternalListenerManager.getListener().onNetworkRequestStarted(SdkListener.Endpoint.IDENTITY_LOGOUT, url, jsonObject, request);
@@ -101,7 +101,7 @@ public class MParticleIdentityClientImpl extends MParticleBaseClientImpl impleme
 
     public IdentityHttpResponse identify(IdentityApiRequest request) throws JSONException, IOException {
         JSONObject jsonObject = getStateJson(request);
-        Logger.verbose("Identity identify request: \n" + jsonObject.toString());
+        Logger.verbose(() -> "Identity identify request: \n" + jsonObject.toString());
         MPConnection connection = getPostConnection(IDENTIFY_PATH, jsonObject.toString());
         String url = connection.getURL().toString();
         InternalListenerManager.getListener().onNetworkRequestStarted(SdkListener.Endpoint.IDENTITY_IDENTIFY, url, jsonObject, request);
@@ -114,7 +114,7 @@ public class MParticleIdentityClientImpl extends MParticleBaseClientImpl impleme
 
     public IdentityHttpResponse modify(IdentityApiRequest request) throws JSONException, IOException {
         JSONObject jsonObject = getChangeJson(request);
-        Logger.verbose("Identity modify request: \n" + jsonObject.toString());
+        Logger.verbose(() -> "Identity modify request: \n" + jsonObject.toString());
         JSONArray identityChanges = jsonObject.optJSONArray("identity_changes");
         if (identityChanges != null && identityChanges.length() == 0) {
             return new IdentityHttpResponse(200, request.mpid, "", null);
@@ -242,7 +242,7 @@ public class MParticleIdentityClientImpl extends MParticleBaseClientImpl impleme
         try {
             Logger.verbose("Identity response code: " + httpCode);
             if (jsonObject != null) {
-                Logger.verbose("Identity result: " + jsonObject.toString());
+                Logger.verbose(() -> "Identity result: " + jsonObject.toString());
             }
             IdentityHttpResponse httpResponse = new IdentityHttpResponse(httpCode, jsonObject);
             if (!MPUtility.isEmpty(httpResponse.getContext())) {
@@ -29,6 +29,7 @@ public class BaseHandler extends Handler {
     public void disable(boolean disable) {
         this.disabled = disable;
         removeCallbacksAndMessages(null);
+        messageQueue.clear();
         while (handling) {
         }
     }
@@ -54,6 +55,7 @@ public class BaseHandler extends Handler {
                 messageQueue.remove(msg);
             }
             if (msg != null && msg.what == -1 && msg.obj instanceof CountDownLatch) {
+                onAwait();
                 ((CountDownLatch) msg.obj).countDown();
             } else {
                 if (InternalListenerManager.isEnabled()) {
@@ -70,6 +72,23 @@ public class BaseHandler extends Handler {
         }
     }
 
+    @Override
+    public void dispatchMessage(Message msg) {
+        if (msg != null && msg.getCallback() != null) {
+            //posted Runnables never reach handleMessage(), so they are released from the queue here
+            messageQueue.remove(msg);
+            if (!disabled) {
+                handling = true;
+                try {
+                    onCallback();
+                } finally {
+                    handling = false;
+                }
+            }
+        }
+        super.dispatchMessage(msg);
+    }
+
     @Override
     public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
         if (disabled) {
@@ -94,6 +113,28 @@ public class BaseHandler extends Handler {
         super.removeMessages(what);
     }
 
+    /**
+     * Whether a message with the given "what" is waiting to be handled. Unlike
+     * {@link #hasMessages(int)}, this only consults messages sent through this handler, and
+     * ignores posted Runnables, whose "what" is always 0.
+     */
+    boolean hasQueuedMessages(int what) {
+        for (Message message : messageQueue.keySet()) {
+            if (message.what == what && message.getCallback() == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Override this in order to complete any deferred work before an await() latch is released
+    void onAwait() {
+    }
+
+    //Override this in order to complete any deferred work before a posted Runnable is run
+    void onCallback() {
+    }
+
     //Override this in order to handle messages
     public void handleMessageImpl(Message msg) {
     }
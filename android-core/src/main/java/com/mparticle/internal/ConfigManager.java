@@ -40,6 +40,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class ConfigManager {
@@ -87,6 +88,10 @@ public class ConfigManager {
     static SharedPreferences sPreferences;
 
     private static JSONArray sPushKeys;
+    /**
+     * Breadcrumb limits by MPID, since reading them requires loading the user's UserStorage.
+     */
+    private static final ConcurrentHashMap<Long, Integer> sBreadcrumbLimits = new ConcurrentHashMap<Long, Integer>();
     private boolean directUrlRouting = false;
     private UserStorage mUserStorage;
     private String mLogUnhandledExceptions = VALUE_APP_DEFINED;
@@ -101,15 +106,27 @@ public class ConfigManager {
     private int mUploadInterval = -1;
     private long mInfluenceOpenTimeout = 3600 * 1000;
     private JSONArray mTriggerMessageMatches, mTriggerMessageHashes = null;
+    private volatile TriggerMessageMatcher mTriggerMessageMatcher = TriggerMessageMatcher.EMPTY;
     private ExceptionHandler mExHandler;
     private JSONObject mCurrentCookies;
     private String mDataplanId;
     private Integer mDataplanVersion;
     private Integer mMaxConfigAge;
+    /**
+     * The stored kit configuration, as last written or verified to already be combined with the
+     * sideloaded kits, so that an unchanged configuration needn't be parsed again.
+     */
+    private volatile String mCombinedKitConfig;
     public static final int DEFAULT_CONNECTION_TIMEOUT_SECONDS = 30;
     public static final int MINIMUM_CONNECTION_TIMEOUT_SECONDS = 1;
     public static final int DEFAULT_SESSION_TIMEOUT_SECONDS = 60;
     public static final int DEFAULT_UPLOAD_INTERVAL = 600;
+    public static final int DEFAULT_UPLOAD_CONCURRENCY = 1;
+    public static final int MAX_UPLOAD_CONCURRENCY = 4;
+    public static final int DEFAULT_STORE_MESSAGE_LATENCY_MILLIS = 0;
+    public static final int MAX_STORE_MESSAGE_LATENCY_MILLIS = 5000;
+    public static final int DEFAULT_KIT_QUEUE_CAPACITY = 100;
+    public static final int MAX_KIT_QUEUE_CAPACITY = 10000;
     private List<ConfigLoadedListener> configUpdatedListeners = new ArrayList<>();
     private List<SideloadedKit> sideloadedKits = new ArrayList<>();
 
@@ -225,6 +242,7 @@ public class ConfigManager {
     }
 
     public void deleteUserStorage(Context context, long mpid) {
+        sBreadcrumbLimits.remove(mpid);
         if (mUserStorage != null) {
             mUserStorage.deleteUserConfig(context, mpid);
         }
@@ -330,10 +348,12 @@ public class ConfigManager {
                     .putString(Constants.PrefKeys.ETAG, etag)
                     .putString(Constants.PrefKeys.IF_MODIFIED, lastModified)
                     .apply();
+            String combinedKitConfig = SideloadedKitsUtils.INSTANCE.combineConfig(kitConfig, sideloadedKits).toString();
             getKitConfigPreferences()
                     .edit()
-                    .putString(KIT_CONFIG_KEY, SideloadedKitsUtils.INSTANCE.combineConfig(kitConfig, sideloadedKits).toString())
+                    .putString(KIT_CONFIG_KEY, combinedKitConfig)
                     .apply();
+            mCombinedKitConfig = combinedKitConfig;
         } else {
             Logger.debug("clearing current configurations");
             clearConfig();
@@ -341,6 +361,7 @@ public class ConfigManager {
     }
 
     public void clearConfig() {
+        mCombinedKitConfig = null;
         sPreferences.edit()
                 .remove(CONFIG_JSON)
                 .remove(CONFIG_JSON_TIMESTAMP)
@@ -361,13 +382,18 @@ public class ConfigManager {
         try {
             String config = getKitConfigPreferences().getString(KIT_CONFIG_KEY, "");
             if (!config.isEmpty()) {
-                JSONArray kitConfig = new JSONArray(config);
-                JSONArray combined = SideloadedKitsUtils.INSTANCE.combineConfig(kitConfig, sideloadedKits);
-                getKitConfigPreferences()
-                        .edit()
-                        .putString(KIT_CONFIG_KEY, combined.toString())
-                        .apply();
-                onConfigLoaded(ConfigType.KIT, kitConfig != combined);
+                if (!config.equals(mCombinedKitConfig)) {
+                    JSONArray kitConfig = new JSONArray(config);
+                    String combined = SideloadedKitsUtils.INSTANCE.combineConfig(kitConfig, sideloadedKits).toString();
+                    if (!combined.equals(config)) {
+                        getKitConfigPreferences()
+                                .edit()
+                                .putString(KIT_CONFIG_KEY, combined)
+                                .apply();
+                    }
+                    mCombinedKitConfig = combined;
+                }
+                onConfigLoaded(ConfigType.KIT, true);
             }
         } catch (JSONException e) {
             e.printStackTrace();
@@ -456,6 +482,7 @@ public class ConfigManager {
             }
 
         }
+        mTriggerMessageMatcher = TriggerMessageMatcher.compile(mTriggerMessageMatches, mTriggerMessageHashes);
 
         if (responseJSON.has(KEY_INFLUENCE_OPEN)) {
             mInfluenceOpenTimeout = responseJSON.getLong(KEY_INFLUENCE_OPEN) * 60 * 1000;
@@ -659,6 +686,17 @@ public class ConfigManager {
         sPreferences.edit().putInt(Constants.PrefKeys.UPLOAD_INTERVAL, uploadInterval).apply();
     }
 
+    /**
+     * The maximum number of message batch requests which may be in-flight at the same time.
+     */
+    public int getUploadConcurrency() {
+        return sPreferences.getInt(Constants.PrefKeys.UPLOAD_CONCURRENCY, DEFAULT_UPLOAD_CONCURRENCY);
+    }
+
+    public void setUploadConcurrency(int uploadConcurrency) {
+        sPreferences.edit().putInt(Constants.PrefKeys.UPLOAD_CONCURRENCY, uploadConcurrency).apply();
+    }
+
     public int getSessionTimeout() {
         if (mSessionTimeoutInterval > 0) {
             return mSessionTimeoutInterval * 1000;
@@ -839,8 +877,20 @@ public class ConfigManager {
         return getUserStorage(context).getBreadcrumbLimit();
     }
 
+    /**
+     * Forget the cached breadcrumb limits, for when the user storage they were read from is deleted.
+     */
+    public static void clearBreadcrumbLimits() {
+        sBreadcrumbLimits.clear();
+    }
+
     public static int getBreadcrumbLimit(Context context, long mpId) {
-        return getUserStorage(context, mpId).getBreadcrumbLimit();
+        Integer limit = sBreadcrumbLimits.get(mpId);
+        if (limit == null) {
+            limit = getUserStorage(context, mpId).getBreadcrumbLimit();
+            sBreadcrumbLimits.put(mpId, limit);
+        }
+        return limit;
     }
 
     public static String getCurrentUserLtv(Context context) {
@@ -853,6 +903,7 @@ public class ConfigManager {
 
     public void setBreadcrumbLimit(int newLimit, long mpId) {
         getUserStorage(mpId).setBreadcrumbLimit(newLimit);
+        sBreadcrumbLimits.remove(mpId);
     }
 
     public static void setNeedsToMigrate(Context context, boolean needsToMigrate) {
@@ -860,6 +911,7 @@ public class ConfigManager {
     }
 
     public static void clear() {
+        sBreadcrumbLimits.clear();
         sPreferences.edit().clear().apply();
     }
 
@@ -956,63 +1008,13 @@ public class ConfigManager {
     }
 
     public boolean shouldTrigger(BaseMPMessage message) {
-        JSONArray messageMatches = getTriggerMessageMatches();
-        JSONArray triggerHashes = getTriggerMessageHashes();
-
-        boolean isBackgroundAst = false;
-        try {
-            isBackgroundAst = (message.getMessageType().equals(Constants.MessageType.APP_STATE_TRANSITION) && message.get(Constants.MessageKey.STATE_TRANSITION_TYPE).equals(Constants.StateTransitionType.STATE_TRANS_BG));
-        } catch (JSONException ex) {
-        }
-        boolean shouldTrigger = message.getMessageType().equals(Constants.MessageType.PUSH_RECEIVED)
-                || message.getMessageType().equals(Constants.MessageType.COMMERCE_EVENT)
-                || isBackgroundAst;
-
-        if (!shouldTrigger && messageMatches != null && messageMatches.length() > 0) {
-            shouldTrigger = true;
-            int i = 0;
-            while (shouldTrigger && i < messageMatches.length()) {
-                try {
-                    JSONObject messageMatch = messageMatches.getJSONObject(i);
-                    Iterator<?> keys = messageMatch.keys();
-                    while (shouldTrigger && keys.hasNext()) {
-                        String key = (String) keys.next();
-                        shouldTrigger = message.has(key);
-                        if (shouldTrigger) {
-                            try {
-                                shouldTrigger = messageMatch.getString(key).equalsIgnoreCase(message.getString(key));
-                            } catch (JSONException stringex) {
-                                try {
-                                    shouldTrigger = message.getBoolean(key) == messageMatch.getBoolean(key);
-                                } catch (JSONException boolex) {
-                                    try {
-                                        shouldTrigger = message.getDouble(key) == messageMatch.getDouble(key);
-                                    } catch (JSONException doubleex) {
-                                        shouldTrigger = false;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-
-                }
-                i++;
-            }
-        }
-        if (!shouldTrigger && triggerHashes != null) {
-            for (int i = 0; i < triggerHashes.length(); i++) {
-                try {
-                    if (triggerHashes.getInt(i) == message.getTypeNameHash()) {
-                        shouldTrigger = true;
-                        break;
-                    }
-                } catch (JSONException jse) {
-
-                }
-            }
-        }
-        return shouldTrigger;
+        String messageType = message.getMessageType();
+        boolean isBackgroundAst = messageType.equals(Constants.MessageType.APP_STATE_TRANSITION)
+                && Constants.StateTransitionType.STATE_TRANS_BG.equals(message.opt(Constants.MessageKey.STATE_TRANSITION_TYPE));
+        return messageType.equals(Constants.MessageType.PUSH_RECEIVED)
+                || messageType.equals(Constants.MessageType.COMMERCE_EVENT)
+                || isBackgroundAst
+                || mTriggerMessageMatcher.matches(message);
     }
 
     public int getUserBucket() {
@@ -1387,6 +1389,15 @@ public class ConfigManager {
         return sPreferences.getInt(ALIAS_MAX_WINDOW, DEFAULT_MAX_ALIAS_WINDOW_DAYS);
     }
 
+    /**
+     * The maximum age, in seconds, of a configuration before it must be fetched again, or null if
+     * there is no limit.
+     */
+    @Nullable
+    public Integer getConfigMaxAge() {
+        return mMaxConfigAge;
+    }
+
     public String getEtag() {
         return sPreferences.getString(Constants.PrefKeys.ETAG, null);
     }
@@ -26,6 +26,7 @@ import org.json.JSONArray;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -33,7 +34,6 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class KitFrameworkWrapper implements KitManager {
     private final Context mContext;
@@ -46,6 +46,8 @@ public class KitFrameworkWrapper implements KitManager {
 
     private Queue eventQueue;
     private Queue<AttributeChange> attributeQueue;
+    private int droppedEvents = 0;
+    private int droppedAttributeChanges = 0;
     private volatile boolean registerForPush = false;
     private static final List<KitsLoadedListener> kitsLoadedListeners = new ArrayList<>();
 
@@ -105,6 +107,22 @@ public class KitFrameworkWrapper implements KitManager {
         return attributeQueue;
     }
 
+    int getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    int getDroppedAttributeChanges() {
+        return droppedAttributeChanges;
+    }
+
+    private int getQueueCapacity() {
+        Integer capacity = mOptions != null ? mOptions.getKitQueueCapacity() : null;
+        if (capacity == null || capacity <= 0) {
+            return ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY;
+        }
+        return capacity;
+    }
+
     void setKitManager(KitManager manager) {
         mKitManager = manager;
     }
@@ -150,6 +168,12 @@ public class KitFrameworkWrapper implements KitManager {
             attributeQueue.clear();
             attributeQueue = null;
         }
+
+        if (droppedEvents > 0 || droppedAttributeChanges > 0) {
+            Logger.warning("Kit queue capacity of " + getQueueCapacity() + " exceeded before kits were loaded: " + droppedEvents + " events and " + droppedAttributeChanges + " user attribute changes were not forwarded to kits.");
+            droppedEvents = 0;
+            droppedAttributeChanges = 0;
+        }
     }
 
     void replayEvents() {
@@ -223,13 +247,14 @@ public class KitFrameworkWrapper implements KitManager {
         }
 
         if (eventQueue == null) {
-            eventQueue = new ConcurrentLinkedQueue<Object>();
+            eventQueue = new ArrayDeque<Object>();
         }
-        //It's an edge case to even need this, so 10
-        //should be enough.
-        if (eventQueue.size() < 10) {
+        //the earliest events are kept, so that those replayed are a prefix of what was logged
+        if (eventQueue.size() < getQueueCapacity()) {
             Logger.debug("Queuing Kit event while waiting for initial configuration.");
             eventQueue.add(event);
+        } else {
+            droppedEvents++;
         }
         return true;
     }
@@ -256,9 +281,13 @@ public class KitFrameworkWrapper implements KitManager {
         }
 
         if (attributeQueue == null) {
-            attributeQueue = new ConcurrentLinkedQueue<AttributeChange>();
+            attributeQueue = new ArrayDeque<AttributeChange>();
+        }
+        if (attributeQueue.size() < getQueueCapacity()) {
+            attributeQueue.add(change);
+        } else {
+            droppedAttributeChanges++;
         }
-        attributeQueue.add(change);
         return true;
     }
 
@@ -773,13 +802,13 @@ public class KitFrameworkWrapper implements KitManager {
             }
 
             @Override
-            public void onKitApiCalled(int kitId, Boolean used, Object... objects) {
-                InternalListenerManager.getListener().onKitApiCalled(kitId, used, objects);
+            public boolean isEnabled() {
+                return InternalListenerManager.isEnabled();
             }
 
             @Override
-            public void onKitApiCalled(String methodName, int kitId, Boolean used, Object... objects) {
-                InternalListenerManager.getListener().onKitApiCalled(methodName, kitId, used, objects);
+            public void onKitApiCalled(String invokingApiMethodName, String kitManagerMethodName, String methodName, int kitId, Boolean used, Object... objects) {
+                InternalListenerManager.getListener().onKitApiCalled(invokingApiMethodName, kitManagerMethodName, methodName, kitId, used, objects);
             }
         };
     }
@@ -29,6 +29,38 @@ public class Logger {
         return sMinLogLevel;
     }
 
+    /**
+     * Query whether messages of the given level will reach the log handler. This is always true for
+     * a handler which overrides {@link AbstractLogHandler#log(LogLevel, Throwable, String)}, since it
+     * may want messages that would not be printed.
+     */
+    public static boolean isLoggable(LogLevel level) {
+        AbstractLogHandler handler = getLogHandler();
+        return !handler.filtersByLevel() || handler.isLoggable(level.logLevel);
+    }
+
+    /**
+     * Log a verbose message, which is only built if verbose messages will be logged.
+     * A handler which overrides {@link AbstractLogHandler#log(LogLevel, Throwable, String)}
+     * receives the message either way, as it does from {@link #verbose(String...)}.
+     */
+    public static void verbose(MessageSupplier message) {
+        if (isLoggable(LogLevel.VERBOSE)) {
+            getLogHandler().log(LogLevel.VERBOSE, null, message.get());
+        }
+    }
+
+    /**
+     * Log a debug message, which is only built if debug messages will be logged.
+     * A handler which overrides {@link AbstractLogHandler#log(LogLevel, Throwable, String)}
+     * receives the message either way, as it does from {@link #debug(String...)}.
+     */
+    public static void debug(MessageSupplier message) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            getLogHandler().log(LogLevel.DEBUG, null, message.get());
+        }
+    }
+
     public static void verbose(String... messages) {
         verbose(null, messages);
     }
@@ -78,6 +110,10 @@ public class Logger {
     }
 
 
+    public interface MessageSupplier {
+        String get();
+    }
+
     /**
      * Testing method. Use this method to intercept Logs, or customize what happens when something is logged.
      * For example, you can use this method to throw an exception every time an "error" log is called.
@@ -96,6 +132,23 @@ public class Logger {
     }
 
     public abstract static class AbstractLogHandler {
+        private Boolean filtersByLevel;
+
+        /**
+         * Whether this handler discards messages below the log level, which is the case unless
+         * {@link #log(LogLevel, Throwable, String)} has been overridden.
+         */
+        boolean filtersByLevel() {
+            if (filtersByLevel == null) {
+                try {
+                    filtersByLevel = getClass().getMethod("log", LogLevel.class, Throwable.class, String.class)
+                            .getDeclaringClass() == AbstractLogHandler.class;
+                } catch (NoSuchMethodException e) {
+                    filtersByLevel = false;
+                }
+            }
+            return filtersByLevel;
+        }
 
         public void log(LogLevel priority, Throwable error, String messages) {
             if (messages != null && isLoggable(priority.logLevel)) {
@@ -70,7 +70,13 @@ public class MPUtility {
     private static String sOpenUDID;
     private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
     private static final String TAG = MPUtility.class.toString();
+    /**
+     * How long a looked up Advertising ID, or the lack of one, is reused before looking it up again,
+     * so that a reset ID or a change to the limit ad tracking setting is eventually picked up.
+     */
+    static final long AD_ID_CACHE_TTL_MILLIS = 10 * 60 * 1000;
     private static AdIdInfo adInfoId = null;
+    private static long adInfoIdTime = 0;
 
     public static long getAvailableMemory(Context context) {
         ActivityManager.MemoryInfo mi = new ActivityManager.MemoryInfo();
@@ -122,8 +128,9 @@ public class MPUtility {
 
     @WorkerThread
     @Nullable
-    public static AdIdInfo getAdIdInfo(Context context) {
-        if (adInfoId != null) {
+    public static synchronized AdIdInfo getAdIdInfo(Context context) {
+        long now = System.currentTimeMillis();
+        if (adInfoIdTime > 0 && now - adInfoIdTime < AD_ID_CACHE_TTL_MILLIS) {
             return adInfoId;
         }
         String packageName = context.getPackageName();
@@ -133,16 +140,21 @@ public class MPUtility {
                 "Amazon".equals(android.os.Build.MANUFACTURER)) {
             adInfoId = getAmazonAdIdInfo(context);
             if (adInfoId == null) {
-                return getGoogleAdIdInfo(context);
+                adInfoId = getGoogleAdIdInfo(context);
             }
-            return adInfoId;
         } else {
             adInfoId = getGoogleAdIdInfo(context);
             if (adInfoId == null) {
-                return getAmazonAdIdInfo(context);
+                adInfoId = getAmazonAdIdInfo(context);
             }
-            return adInfoId;
         }
+        adInfoIdTime = now;
+        return adInfoId;
+    }
+
+    static synchronized void clearAdIdInfo() {
+        adInfoId = null;
+        adInfoIdTime = 0;
     }
 
     private static AdIdInfo getGoogleAdIdInfo(Context context) {
@@ -264,6 +276,21 @@ public class MPUtility {
         return asHex(sha256_HMAC.doFinal(data.getBytes("utf-8")));
     }
 
+    /**
+     * Sign the UTF-8 encoding of prefix followed by data, without concatenating them.
+     */
+    public static String hmacSha256Encode(String key, String prefix, byte[] data) throws NoSuchAlgorithmException,
+            InvalidKeyException, UnsupportedEncodingException {
+        Mac sha256_HMAC = Mac.getInstance("HmacSHA256");
+        SecretKeySpec secret_key = new SecretKeySpec(key.getBytes("utf-8"), "HmacSHA256");
+        sha256_HMAC.init(secret_key);
+        sha256_HMAC.update(prefix.getBytes("utf-8"));
+        if (data != null) {
+            sha256_HMAC.update(data);
+        }
+        return asHex(sha256_HMAC.doFinal());
+    }
+
     private static String asHex(byte[] buf) {
         char[] chars = new char[2 * buf.length];
         for (int i = 0; i < buf.length; ++i) {
@@ -290,23 +317,31 @@ public class MPUtility {
     }
 
 
+    /**
+     * Reads the response to the end and closes it, which allows the connection to be reused,
+     * even if the response is not JSON.
+     */
     public static JSONObject getJsonResponse(InputStream is) {
+        if (is == null) {
+            return null;
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(is));
         try {
             StringBuilder responseBuilder = new StringBuilder();
-            if (is == null) {
-                return null;
-            }
-            BufferedReader in = new BufferedReader(new InputStreamReader(is));
             String line;
             while ((line = in.readLine()) != null) {
                 responseBuilder.append(line + '\n');
             }
-            in.close();
             return new JSONObject(responseBuilder.toString());
         } catch (IOException ex) {
 
         } catch (JSONException jse) {
 
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
         }
         return null;
     }
@@ -509,17 +544,73 @@ public class MPUtility {
     }
 
     public static int mpHash(String input) {
-        int hash = 0;
-
         if (input == null || input.length() == 0)
-            return hash;
+            return 0;
+
+        return mpHashAppend(0, input);
+    }
 
-        char[] chars = input.toLowerCase().toCharArray();
+    /**
+     * Equivalent to {@code mpHash(prefix + name)}, without building the concatenated String.
+     * As with concatenation, a null name is hashed as "null".
+     */
+    public static int mpHash(int prefix, @Nullable CharSequence name) {
+        return mpHashAppend(mpHashAppend(0, prefix), name);
+    }
 
-        for (char c : chars) {
+    /**
+     * Equivalent to {@code mpHash(prefix + name + key)}, without building the concatenated String.
+     * As with concatenation, a null name or key is hashed as "null".
+     */
+    public static int mpHash(int prefix, @Nullable CharSequence name, @Nullable CharSequence key) {
+        return mpHashAppend(mpHashAppend(mpHashAppend(0, prefix), name), key);
+    }
+
+    /**
+     * Continue an mpHash over the lower-cased characters of {@code part}. ASCII characters are
+     * folded in place; only parts containing other characters fall back to String.toLowerCase().
+     */
+    private static int mpHashAppend(int hash, @Nullable CharSequence part) {
+        if (part == null) {
+            part = "null";
+        }
+        int length = part.length();
+        for (int i = 0; i < length; i++) {
+            char c = part.charAt(i);
+            if (c >= 0x80) {
+                return mpHashAppendSlow(hash, part.subSequence(i, length).toString().toLowerCase());
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
             hash = ((hash << 5) - hash) + c;
         }
+        return hash;
+    }
+
+    private static int mpHashAppendSlow(int hash, String lowerCased) {
+        int length = lowerCased.length();
+        for (int i = 0; i < length; i++) {
+            hash = ((hash << 5) - hash) + lowerCased.charAt(i);
+        }
+        return hash;
+    }
 
+    private static int mpHashAppend(int hash, int value) {
+        if (value < 0) {
+            hash = ((hash << 5) - hash) + '-';
+        } else {
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor <= -10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            hash = ((hash << 5) - hash) + ('0' - value / divisor);
+            value %= divisor;
+            divisor /= 10;
+        }
         return hash;
     }
 
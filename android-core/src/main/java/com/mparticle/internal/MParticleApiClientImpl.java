@@ -35,9 +35,13 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class responsible for all network communication to the mParticle Events and Configuration APIs.
+ * <p>
+ * {@link #sendMessageBatch(String, UploadSettings)} may be called from several upload worker
+ * threads at once when upload concurrency is enabled, so any state it touches must be thread-safe.
  */
 public class MParticleApiClientImpl extends MParticleBaseClientImpl implements MParticleApiClient {
 
@@ -113,6 +117,19 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
         fetchConfig(false);
     }
 
+    /**
+     * The time for which a fetched configuration is considered fresh. This is shortened to the
+     * configMaxAge, when one is set, so that a long-running process does not use a configuration
+     * older than allowed.
+     */
+    long getConfigRequestInterval() {
+        Integer configMaxAge = mConfigManager.getConfigMaxAge();
+        if (configMaxAge != null && configMaxAge > 0) {
+            return Math.min(MIN_CONFIG_REQUEST_INTERVAL, TimeUnit.SECONDS.toMillis(configMaxAge));
+        }
+        return MIN_CONFIG_REQUEST_INTERVAL;
+    }
+
     /**
      * Fetches a remote configuration. Minimum time constraint based on MIN_CONFIG_REQUEST_INTERVAL
      * if not forced, configuration request will not take place if minimum time has not elapsed
@@ -122,7 +139,7 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
      */
     public void fetchConfig(boolean force) throws IOException, MPConfigException {
         if (!force) {
-            if (System.currentTimeMillis() - mConfigLastFetched > MIN_CONFIG_REQUEST_INTERVAL) {
+            if (System.currentTimeMillis() - mConfigLastFetched > getConfigRequestInterval()) {
                 mConfigLastFetched = System.currentTimeMillis();
             } else {
                 Logger.verbose("Config request deferred, not enough time has elapsed since last request.");
@@ -174,10 +191,12 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
             if (responseCode >= 200 && responseCode < 300) {
                 parseCookies(response);
 
-                Logger.verbose("Config result: \n " +
-                        connection.getResponseCode() + ": " +
-                        connection.getResponseMessage() + "\n" +
-                        "response:\n" + response.toString());
+                final JSONObject configResponse = response;
+                final String responseMessage = connection.getResponseMessage();
+                Logger.verbose(() -> "Config result: \n " +
+                        responseCode + ": " +
+                        responseMessage + "\n" +
+                        "response:\n" + configResponse.toString());
 
                 String newEtag = connection.getHeaderField("ETag");
                 String newModified = connection.getHeaderField("Last-Modified");
@@ -215,7 +234,9 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
                 Logger.error("Your workspace is not enabled to retrieve user audiences");
             }
             jsonResponse = MPUtility.getJsonResponse(connection);
-            Logger.verbose("Audience API response: \n Status code: " +connection.getResponseCode()+ "  JSON response: "+ jsonResponse);
+            final JSONObject audienceResponse = jsonResponse;
+            final int audienceResponseCode = connection.getResponseCode();
+            Logger.verbose(() -> "Audience API response: \n Status code: " + audienceResponseCode + "  JSON response: " + audienceResponse);
             if (jsonResponse != null && connection.getResponseCode() == 200) {
                 task.setSuccessful(new AudienceResponse(connection.getResponseCode(), jsonResponse));
             } else {
@@ -249,21 +270,24 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
             connection.setRequestProperty(HEADER_BUNDLED_KITS, supportedKits);
         }
 
-        addMessageSignature(connection, message);
+        //encode once, for both the signature and the request body
+        byte[] encodedMessage = message.getBytes("UTF-8");
+        addEncodedMessageSignature(connection, encodedMessage);
 
         logUpload(message);
 
-        try {
-            InternalListenerManager.getListener().onNetworkRequestStarted(SdkListener.Endpoint.EVENTS, connection.getURL().toString(), new JSONObject(message), message);
-        } catch (Exception e) {
+        if (InternalListenerManager.isEnabled()) {
+            try {
+                InternalListenerManager.getListener().onNetworkRequestStarted(SdkListener.Endpoint.EVENTS, connection.getURL().toString(), new JSONObject(message), message);
+            } catch (Exception e) {
+            }
         }
 
-        makeUrlRequest(Endpoint.EVENTS, connection, message, true);
+        makeEncodedUrlRequest(Endpoint.EVENTS, connection, encodedMessage, true);
 
-        Logger.verbose("Upload request attempt:\n" +
+        Logger.verbose(() -> "Upload request attempt:\n" +
                 "URL- " + eventUrl.toString());
-
-        Logger.verbose(message);
+        Logger.verbose(() -> message);
 
         int responseCode = connection.getResponseCode();
 
@@ -273,16 +297,21 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
                 InternalListenerManager.getListener().onNetworkRequestFinished(SdkListener.Endpoint.EVENTS, connection.getURL().toString(), response, responseCode);
             }
 
-            Logger.verbose("Upload result response: \n" +
-                    connection.getResponseCode() + ": " +
-                    connection.getResponseMessage() + "\n" +
+            final String responseMessage = connection.getResponseMessage();
+            Logger.verbose(() -> "Upload result response: \n" +
+                    responseCode + ": " +
+                    responseMessage + "\n" +
                     "response:\n" + response.toString());
             parseCookies(response);
         } else {
             Logger.error("Upload request failed- " + responseCode + ": " + connection.getResponseMessage());
-            try {
-                InternalListenerManager.getListener().onNetworkRequestFinished(SdkListener.Endpoint.EVENTS, connection.getURL().getFile(), new JSONObject().put(SdkListener.ERROR_MESSAGE, connection.getResponseMessage()), responseCode);
-            } catch (Exception e) {
+            //consume the response, so that the connection can be reused
+            MPUtility.getJsonResponse(connection);
+            if (InternalListenerManager.isEnabled()) {
+                try {
+                    InternalListenerManager.getListener().onNetworkRequestFinished(SdkListener.Endpoint.EVENTS, connection.getURL().getFile(), new JSONObject().put(SdkListener.ERROR_MESSAGE, connection.getResponseMessage()), responseCode);
+                } catch (Exception e) {
+                }
             }
         }
         return connection.getResponseCode();
@@ -306,10 +335,12 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
         addMessageSignature(connection, message);
 
         String url = "";
-        try {
-            url = connection.getURL().toString();
-            InternalListenerManager.getListener().onNetworkRequestStarted(SdkListener.Endpoint.EVENTS, url, new JSONObject(message), message);
-        } catch (Exception ignore) {
+        if (InternalListenerManager.isEnabled()) {
+            try {
+                url = connection.getURL().toString();
+                InternalListenerManager.getListener().onNetworkRequestStarted(SdkListener.Endpoint.EVENTS, url, new JSONObject(message), message);
+            } catch (Exception ignore) {
+            }
         }
 
         connection = makeUrlRequest(Endpoint.ALIAS, connection, message, false);
@@ -317,6 +348,8 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
         String error = "";
         JSONObject response = new JSONObject();
         if (responseCode >= 200 && responseCode < 300) {
+            //consume the response, so that the connection can be reused
+            MPUtility.getJsonResponse(connection);
             Logger.verbose("Alias Request response: \n " +
                     connection.getResponseCode() + ": " +
                     connection.getResponseMessage());
@@ -332,18 +365,22 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
     }
 
     private void logUpload(String message) {
-        try {
-            JSONObject messageJson = new JSONObject(message);
-            if (messageJson.has(Constants.MessageKey.MESSAGES)) {
-                JSONArray messages = messageJson.getJSONArray(Constants.MessageKey.MESSAGES);
-                Logger.verbose("Uploading message batch...");
-                for (int i = 0; i < messages.length(); i++) {
-                    Logger.verbose("Message type: " + ((JSONObject) messages.get(i)).getString(Constants.MessageKey.TYPE));
+        Logger.verbose(() -> {
+            try {
+                JSONObject messageJson = new JSONObject(message);
+                if (messageJson.has(Constants.MessageKey.MESSAGES)) {
+                    JSONArray messages = messageJson.getJSONArray(Constants.MessageKey.MESSAGES);
+                    StringBuilder builder = new StringBuilder("Uploading message batch...");
+                    for (int i = 0; i < messages.length(); i++) {
+                        builder.append("\nMessage type: ").append(((JSONObject) messages.get(i)).getString(Constants.MessageKey.TYPE));
+                    }
+                    return builder.toString();
                 }
-            }
-        } catch (JSONException jse) {
+            } catch (JSONException jse) {
 
-        }
+            }
+            return null;
+        });
     }
 
     void addMessageSignature(MPConnection request, String message) {
@@ -360,6 +397,20 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
         }
     }
 
+    void addEncodedMessageSignature(MPConnection request, byte[] encodedMessage) {
+        try {
+            String date = getHeaderDateString();
+            request.setRequestProperty("Date", date);
+            request.setRequestProperty(HEADER_SIGNATURE, getHeaderHashString(request, date, encodedMessage, mApiSecret));
+        } catch (InvalidKeyException e) {
+            Logger.error("Error signing message.");
+        } catch (NoSuchAlgorithmException e) {
+            Logger.error("Error signing message.");
+        } catch (UnsupportedEncodingException e) {
+            Logger.error("Error signing message.");
+        }
+    }
+
     private void parseCookies(JSONObject jsonResponse) {
         try {
             if (jsonResponse.has(CONSUMER_INFO)) {
@@ -413,7 +464,7 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
         }
     }
 
-    public void setCookies(JSONObject serverCookies) {
+    public synchronized void setCookies(JSONObject serverCookies) {
         if (serverCookies != null) {
             try {
                 JSONObject localCookies = getCookies();
@@ -431,7 +482,7 @@ public class MParticleApiClientImpl extends MParticleBaseClientImpl implements M
         }
     }
 
-    public JSONObject getCookies() {
+    public synchronized JSONObject getCookies() {
         if (mCurrentCookies == null) {
             String currentCookies = mConfigManager.getUserStorage().getCookies();
             if (MPUtility.isEmpty(currentCookies)) {
@@ -16,11 +16,31 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * An upload batch. Messages read from the database may be added in their serialized form, and are
+ * only spliced into the "msgs" array when the batch is serialized with {@link #toString()}, which
+ * is how batches are stored and uploaded.
+ * <p>
+ * Reading "msgs" through {@link #get(String)}, {@link #opt(String)} or the typed getters built on
+ * them, or serializing with {@link #toString(int)}, parses the pending messages first. Other
+ * JSONObject views, such as {@link #keys()}, {@link #names()} and {@link #length()}, and writing the
+ * batch as a value nested in another JSONObject or JSONArray, only see messages which have been
+ * parsed, so call {@link #inflateSerializedMessages()} before using the batch that way.
+ */
 public class MessageBatch extends JSONObject {
     private long messageLengthBytes;
+    /**
+     * Messages which were added in their already-serialized form, straight from the database. They
+     * are spliced into the output of {@link #toString()} rather than being parsed into the
+     * "msgs" JSONArray, unless something reads the "msgs" key or calls {@link #getMessages()}.
+     */
+    private List<String> serializedMessages = new ArrayList<String>();
+    private long serializedMessagesLength;
 
     protected MessageBatch() {
         super();
@@ -101,6 +121,7 @@ public class MessageBatch extends JSONObject {
     }
 
     public void addMessage(JSONObject message) {
+        inflateSerializedMessages();
         try {
             if (!has(Constants.MessageKey.MESSAGES)) {
                 put(Constants.MessageKey.MESSAGES, new JSONArray());
@@ -110,6 +131,69 @@ public class MessageBatch extends JSONObject {
         }
     }
 
+    /**
+     * Add a message which is already serialized. The message is not parsed, it will be written
+     * as-is into the "msgs" array when the batch is serialized.
+     */
+    public void addMessage(String serializedMessage) {
+        serializedMessages.add(serializedMessage);
+        serializedMessagesLength += serializedMessage.length();
+    }
+
+    /**
+     * Remove {@code key} from every message of type {@code messageType} in this batch.
+     *
+     * @return the value removed from the last matching message, or null if none of the messages
+     * contained the key with a value of type {@code valueType}
+     */
+    public <T> T removeFromMessages(String messageType, String key, Class<T> valueType) {
+        T lastValue = null;
+        //read the parsed messages directly, opt() would parse the serialized ones too
+        Object parsedMessages = super.opt(Constants.MessageKey.MESSAGES);
+        if (parsedMessages instanceof JSONArray) {
+            JSONArray messages = (JSONArray) parsedMessages;
+            for (int i = 0; i < messages.length(); i++) {
+                JSONObject message = messages.optJSONObject(i);
+                T value = removeFromMessage(message, messageType, key, valueType);
+                if (value != null) {
+                    lastValue = value;
+                }
+            }
+        }
+        String typeMarker = "\"" + Constants.MessageKey.TYPE + "\":\"" + messageType + "\"";
+        for (int i = 0; i < serializedMessages.size(); i++) {
+            String serializedMessage = serializedMessages.get(i);
+            //cheap pre-check, so only candidate messages are parsed
+            if (!serializedMessage.contains(typeMarker)) {
+                continue;
+            }
+            try {
+                JSONObject message = new JSONObject(serializedMessage);
+                T value = removeFromMessage(message, messageType, key, valueType);
+                if (value != null) {
+                    lastValue = value;
+                    String updatedMessage = message.toString();
+                    serializedMessages.set(i, updatedMessage);
+                    serializedMessagesLength += updatedMessage.length() - serializedMessage.length();
+                }
+            } catch (JSONException ignored) {
+            }
+        }
+        return lastValue;
+    }
+
+    private static <T> T removeFromMessage(JSONObject message, String messageType, String key, Class<T> valueType) {
+        if (message == null || !messageType.equals(message.optString(Constants.MessageKey.TYPE))) {
+            return null;
+        }
+        Object value = message.opt(key);
+        if (valueType.isInstance(value)) {
+            message.remove(key);
+            return valueType.cast(value);
+        }
+        return null;
+    }
+
     public void addReportingMessage(JSONObject reportingMessage) {
         try {
             if (!has(Constants.MessageKey.REPORTING)) {
@@ -151,6 +235,7 @@ public class MessageBatch extends JSONObject {
     }
 
     public JSONArray getMessages() {
+        inflateSerializedMessages();
         try {
             return getJSONArray(Constants.MessageKey.MESSAGES);
         } catch (JSONException e) {
@@ -180,6 +265,95 @@ public class MessageBatch extends JSONObject {
         messageLengthBytes = messageLengthBytes + bytes;
     }
 
+    /**
+     * Parse any serialized messages into the "msgs" JSONArray, for callers that need to
+     * inspect or modify the batch as a JSONObject, such as a BatchCreationListener.
+     */
+    public void inflateSerializedMessages() {
+        if (serializedMessages.isEmpty()) {
+            return;
+        }
+        List<String> pending = serializedMessages;
+        serializedMessages = new ArrayList<String>();
+        serializedMessagesLength = 0;
+        try {
+            if (!has(Constants.MessageKey.MESSAGES)) {
+                put(Constants.MessageKey.MESSAGES, new JSONArray());
+            }
+            JSONArray messages = getJSONArray(Constants.MessageKey.MESSAGES);
+            for (String serializedMessage : pending) {
+                messages.put(new JSONObject(serializedMessage));
+            }
+        } catch (JSONException ex) {
+            Logger.error(ex, "Unable to parse stored message");
+        }
+    }
+
+    /**
+     * Serializes the batch, splicing in any messages that were added in their serialized form, so
+     * the batch is written in a single pass without building a JSONObject for each message.
+     */
+    @Override
+    public String toString() {
+        if (!serializedMessages.isEmpty() && super.has(Constants.MessageKey.MESSAGES)) {
+            //messages were added in both forms, fall back to the parsed form to preserve their order
+            inflateSerializedMessages();
+        }
+        String header = super.toString();
+        if (serializedMessages.isEmpty()) {
+            return header;
+        }
+        StringBuilder builder = new StringBuilder(header.length() + (int) serializedMessagesLength + serializedMessages.size() + 16);
+        builder.append(header, 0, header.length() - 1);
+        if (header.length() > 2) {
+            builder.append(',');
+        }
+        builder.append('"').append(Constants.MessageKey.MESSAGES).append("\":[");
+        for (int i = 0; i < serializedMessages.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(serializedMessages.get(i));
+        }
+        return builder.append("]}").toString();
+    }
+
+    @Override
+    public Object get(String name) throws JSONException {
+        inflateSerializedMessages(name);
+        return super.get(name);
+    }
+
+    @Override
+    public Object opt(String name) {
+        inflateSerializedMessages(name);
+        return super.opt(name);
+    }
+
+    @Override
+    public boolean has(String name) {
+        inflateSerializedMessages(name);
+        return super.has(name);
+    }
+
+    @Override
+    public Object remove(String name) {
+        inflateSerializedMessages(name);
+        return super.remove(name);
+    }
+
+    @Override
+    public String toString(int indentSpaces) throws JSONException {
+        inflateSerializedMessages();
+        return super.toString(indentSpaces);
+    }
+
+    private void inflateSerializedMessages(String name) {
+        if (Constants.MessageKey.MESSAGES.equals(name)) {
+            inflateSerializedMessages();
+        }
+    }
+
     private void addConsentStateJSON(JSONObject parentJSON, String key, ConsentInstance consentInstance) throws JSONException {
         JSONObject consentInstanceJSON = new JSONObject();
         parentJSON.put(key, consentInstanceJSON);
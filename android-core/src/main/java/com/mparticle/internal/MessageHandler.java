@@ -9,6 +9,7 @@ import com.mparticle.MParticle;
 import com.mparticle.internal.Constants.MessageKey;
 import com.mparticle.internal.Constants.MessageType;
 import com.mparticle.internal.MessageManager.IncrementUserAttributeMessage;
+import com.mparticle.internal.database.MPDatabase;
 import com.mparticle.internal.database.services.MParticleDBManager;
 import com.mparticle.internal.database.tables.SessionTable;
 import com.mparticle.internal.messages.BaseMPMessage;
@@ -17,6 +18,7 @@ import com.mparticle.internal.messages.MPAliasMessage;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -44,6 +46,15 @@ import java.util.UUID;
     public static final int INSTALL_REFERRER_UPDATED = 13;
     public static final int CLEAR_MESSAGES_FOR_UPLOAD = 14;
     public static final int STORE_ALIAS_MESSAGE = 15;
+    public static final int FLUSH_PENDING_MESSAGES = 16;
+
+    /**
+     * The maximum number of STORE_MESSAGE messages which will be written in one transaction.
+     */
+    static final int MAX_PENDING_MESSAGES = 100;
+    private final List<BaseMPMessage> mPendingMessages = new ArrayList<BaseMPMessage>();
+    private long mPendingSince;
+    private volatile long mStoreMessageLatencyMillis = ConfigManager.DEFAULT_STORE_MESSAGE_LATENCY_MILLIS;
 
     private final MessageManagerCallbacks mMessageManagerCallbacks;
     String mDataplanId;
@@ -88,34 +99,21 @@ import java.util.UUID;
         } catch (Exception e) {
             Logger.verbose(e.toString());
         }
+        if (msg.what != STORE_MESSAGE && !mPendingMessages.isEmpty()) {
+            // Anything else handled on this thread may depend on the pending messages already being
+            // stored (session end, upload preparation, etc), so they are written first.
+            storePendingMessages();
+        }
         switch (msg.what) {
             case STORE_MESSAGE:
-                try {
-                    BaseMPMessage message = (BaseMPMessage) msg.obj;
-                    message.put(MessageKey.STATE_INFO_KEY, MessageManager.getStateInfo());
-                    String messageType = message.getString(MessageKey.TYPE);
-                    // Handle the special case of session-start by creating the
-                    // session record first.
-                    if (MessageType.SESSION_START.equals(messageType)) {
-                        dbInsertSession(message);
-                    } else {
-                        mMParticleDBManager.updateSessionEndTime(message.getSessionId(), message.getLong(MessageKey.TIMESTAMP), 0);
-                        message.put(Constants.MessageKey.ID, UUID.randomUUID().toString());
-                    }
-                    if (MessageType.ERROR.equals(messageType)) {
-                        mMParticleDBManager.appendBreadcrumbs(message);
-                    }
-                    try {
-                        mMParticleDBManager.insertMessage(mMessageManagerCallbacks.getApiKey(), message, mDataplanId, mDataplanVersion);
-                    } catch (MParticleApiClientImpl.MPNoConfigException e) {
-                        Logger.error("Unable to process uploads, API key and/or API Secret are missing.");
-                        return;
-                    }
-                    mMessageManagerCallbacks.checkForTrigger(message);
-
-                } catch (Exception e) {
-                    Logger.error(e, "Error saving message to mParticle DB.");
+                mPendingMessages.add((BaseMPMessage) msg.obj);
+                if (mPendingMessages.size() == 1) {
+                    mPendingSince = MPUtility.millitime();
                 }
+                schedulePendingMessages();
+                break;
+            case FLUSH_PENDING_MESSAGES:
+                storePendingMessages();
                 break;
             case INSTALL_REFERRER_UPDATED:
                 try {
@@ -296,6 +294,131 @@ import java.util.UUID;
         }
     }
 
+    /**
+     * Decide whether the pending STORE_MESSAGE messages should be written now. While more
+     * STORE_MESSAGE messages are queued behind this one, writing is deferred so that the whole
+     * burst is stored in a single transaction, bounded by {@link #MAX_PENDING_MESSAGES} and by
+     * the configured maximum latency.
+     */
+    private void schedulePendingMessages() {
+        if (mPendingMessages.size() >= MAX_PENDING_MESSAGES) {
+            storePendingMessages();
+            return;
+        }
+        long elapsed = MPUtility.millitime() - mPendingSince;
+        if (hasQueuedMessages(STORE_MESSAGE)) {
+            if (mStoreMessageLatencyMillis > 0 && elapsed >= mStoreMessageLatencyMillis) {
+                storePendingMessages();
+            }
+        } else if (mStoreMessageLatencyMillis <= 0 || elapsed >= mStoreMessageLatencyMillis) {
+            storePendingMessages();
+        } else if (!hasQueuedMessages(FLUSH_PENDING_MESSAGES)) {
+            sendEmptyMessageDelayed(FLUSH_PENDING_MESSAGES, mStoreMessageLatencyMillis - elapsed);
+        }
+    }
+
+    /**
+     * Write all pending STORE_MESSAGE messages in a single transaction, with a single session
+     * end-time update per session, rather than two autocommit statements per message.
+     */
+    void storePendingMessages() {
+        if (mPendingMessages.isEmpty()) {
+            return;
+        }
+        List<BaseMPMessage> messages = new ArrayList<BaseMPMessage>(mPendingMessages);
+        mPendingMessages.clear();
+        removeMessage(FLUSH_PENDING_MESSAGES);
+        List<BaseMPMessage> stored = new ArrayList<BaseMPMessage>(messages.size());
+        MPDatabase db = null;
+        try {
+            db = mMParticleDBManager.getDatabase();
+            if (db != null) {
+                db.beginTransaction();
+            }
+        } catch (Exception e) {
+            Logger.warning("Unable to begin transaction, storing messages individually: " + e.getMessage());
+            db = null;
+        }
+        try {
+            Map<String, Long> sessionEndTimes = new HashMap<String, Long>();
+            for (BaseMPMessage message : messages) {
+                try {
+                    if (storeMessage(message, sessionEndTimes, db != null)) {
+                        stored.add(message);
+                    }
+                } catch (Exception e) {
+                    Logger.error(e, "Error saving message to mParticle DB.");
+                }
+            }
+            for (Map.Entry<String, Long> sessionEndTime : sessionEndTimes.entrySet()) {
+                try {
+                    mMParticleDBManager.updateSessionEndTime(sessionEndTime.getKey(), sessionEndTime.getValue(), 0);
+                } catch (Exception e) {
+                    Logger.error(e, "Error updating session end time in mParticle DB.");
+                }
+            }
+            if (db != null) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            if (db != null) {
+                try {
+                    db.endTransaction();
+                } catch (Exception e) {
+                    Logger.error(e, "Error saving messages to mParticle DB.");
+                    stored.clear();
+                }
+                // The messages only become visible to the upload thread once the transaction has
+                // ended, so they are counted here rather than as each one is inserted.
+                mMParticleDBManager.onMessagesCommitted();
+            }
+        }
+        for (BaseMPMessage message : stored) {
+            mMessageManagerCallbacks.checkForTrigger(message);
+        }
+    }
+
+    /**
+     * @return true if the message was inserted
+     */
+    private boolean storeMessage(BaseMPMessage message, Map<String, Long> sessionEndTimes, boolean inTransaction) throws JSONException {
+        message.put(MessageKey.STATE_INFO_KEY, MessageManager.getStateInfo());
+        String messageType = message.getString(MessageKey.TYPE);
+        // Handle the special case of session-start by creating the
+        // session record first.
+        if (MessageType.SESSION_START.equals(messageType)) {
+            dbInsertSession(message);
+        } else {
+            sessionEndTimes.put(message.getSessionId(), message.getLong(MessageKey.TIMESTAMP));
+            message.put(Constants.MessageKey.ID, UUID.randomUUID().toString());
+        }
+        if (MessageType.ERROR.equals(messageType)) {
+            mMParticleDBManager.appendBreadcrumbs(message);
+        }
+        try {
+            mMParticleDBManager.insertMessage(mMessageManagerCallbacks.getApiKey(), message, mDataplanId, mDataplanVersion, inTransaction);
+        } catch (MParticleApiClientImpl.MPNoConfigException e) {
+            Logger.error("Unable to process uploads, API key and/or API Secret are missing.");
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    void onAwait() {
+        storePendingMessages();
+    }
+
+    @Override
+    void onCallback() {
+        // Runnables posted to this thread (e.g. to wait for it) expect earlier messages to be stored.
+        storePendingMessages();
+    }
+
+    void setStoreMessageLatency(long storeMessageLatencyMillis) {
+        mStoreMessageLatencyMillis = storeMessageLatencyMillis;
+    }
+
     private void dbInsertSession(BaseMPMessage message) throws JSONException {
         try {
             DeviceAttributes deviceAttributes = mMessageManagerCallbacks.getDeviceAttributes();
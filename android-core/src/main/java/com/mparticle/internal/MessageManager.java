@@ -9,6 +9,7 @@ import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.location.Location;
+import android.location.LocationManager;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.BatteryManager;
@@ -49,6 +50,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class is primarily responsible for generating BaseMPMessage objects, and then adding them to a
@@ -74,11 +77,17 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
      * The upload handler thread primarily queries the database for messages to upload, and then handles network communication.
      */
     private static HandlerThread sUploadHandlerThread;
+    /**
+     * The identity handler thread runs identify/login/logout/modify requests, so that they never
+     * wait behind batch assembly and upload network calls on the upload handler thread.
+     */
+    private static HandlerThread sIdentityHandlerThread;
     /**
      * These are the handlers which manage the queues and threads mentioned above.
      */
     MessageHandler mMessageHandler;
     public UploadHandler mUploadHandler;
+    public BaseHandler mIdentityHandler;
 
     /**
      * Ideally these threads would not be started in a static initializer
@@ -94,8 +103,11 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
                 Process.THREAD_PRIORITY_BACKGROUND);
         sUploadHandlerThread = new HandlerThread("mParticleUploadHandler",
                 Process.THREAD_PRIORITY_BACKGROUND);
+        sIdentityHandlerThread = new HandlerThread("mParticleIdentityHandler",
+                Process.THREAD_PRIORITY_DEFAULT);
         sMessageHandlerThread.start();
         sUploadHandlerThread.start();
+        sIdentityHandlerThread.start();
     }
 
     /**
@@ -130,6 +142,13 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
      * Batches/messages need to communicate the current telephony status when available.
      */
     private static TelephonyManager sTelephonyManager;
+    /**
+     * Device state is refreshed at most this often, in addition to whenever the
+     * StatusBroadcastReceiver observes a connectivity or location provider change.
+     */
+    static final long DEVICE_STATE_MAX_AGE_MILLIS = 10 * 1000;
+    private static final AtomicReference<DeviceState> sDeviceState = new AtomicReference<DeviceState>();
+    private static final AtomicBoolean sDeviceStateRefreshing = new AtomicBoolean(false);
 
     private boolean delayedStartOccurred = false;
 
@@ -166,7 +185,9 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
         mAppStateManager.setMessageManager(this);
         mMParticleDBManager = dbManager;
         mMessageHandler = new MessageHandler(sMessageHandlerThread.getLooper(), this, options.getContext(), dbManager, options.getDataplanId(), options.getDataplanVersion());
+        mMessageHandler.setStoreMessageLatency(options.getStoreMessageLatency());
         mUploadHandler = new UploadHandler(options.getContext(), sUploadHandlerThread.getLooper(), configManager, appStateManager, this, dbManager, kitFrameworkWrapper);
+        mIdentityHandler = new BaseHandler(sIdentityHandlerThread.getLooper());
         sPreferences = options.getContext().getSharedPreferences(Constants.PREFS_FILE, Context.MODE_PRIVATE);
         mInstallType = options.getInstallType();
     }
@@ -189,32 +210,31 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
     public static JSONObject getStateInfo() throws JSONException {
         JSONObject infoJson = new JSONObject();
         try {
+            DeviceState deviceState = getDeviceState();
             if (!devicePerformanceMetricsDisabled) {
-                infoJson.put(MessageKey.STATE_INFO_AVAILABLE_DISK, MPUtility.getAvailableInternalDisk(sContext));
-                infoJson.put(MessageKey.STATE_INFO_AVAILABLE_EXT_DISK, MPUtility.getAvailableExternalDisk(sContext));
+                infoJson.put(MessageKey.STATE_INFO_AVAILABLE_DISK, deviceState.availableInternalDisk);
+                infoJson.put(MessageKey.STATE_INFO_AVAILABLE_EXT_DISK, deviceState.availableExternalDisk);
                 final Runtime rt = Runtime.getRuntime();
                 infoJson.put(MessageKey.STATE_INFO_APP_MEMORY_USAGE, rt.totalMemory());
                 infoJson.put(MessageKey.STATE_INFO_APP_MEMORY_AVAIL, rt.freeMemory());
                 infoJson.put(MessageKey.STATE_INFO_APP_MEMORY_MAX, rt.maxMemory());
             }
-            infoJson.put(MessageKey.STATE_INFO_AVAILABLE_MEMORY, MPUtility.getAvailableMemory(sContext));
-            infoJson.put(MessageKey.STATE_INFO_TOTAL_MEMORY, getTotalMemory());
+            infoJson.put(MessageKey.STATE_INFO_AVAILABLE_MEMORY, deviceState.availableMemory);
+            infoJson.put(MessageKey.STATE_INFO_TOTAL_MEMORY, deviceState.totalMemory);
             infoJson.put(MessageKey.STATE_INFO_BATTERY_LVL, sBatteryLevel);
             infoJson.put(MessageKey.STATE_INFO_TIME_SINCE_START, MPUtility.millitime() - sStartTime);
 
-            String gps = MPUtility.getGpsEnabled(sContext);
-            if (gps != null) {
-                infoJson.put(MessageKey.STATE_INFO_GPS, Boolean.parseBoolean(gps));
+            if (deviceState.gps != null) {
+                infoJson.put(MessageKey.STATE_INFO_GPS, Boolean.parseBoolean(deviceState.gps));
             }
             infoJson.put(MessageKey.STATE_INFO_DATA_CONNECTION, sActiveNetworkName);
             int orientation = MPUtility.getOrientation(sContext);
             infoJson.put(MessageKey.STATE_INFO_ORIENTATION, orientation);
             infoJson.put(MessageKey.STATE_INFO_BAR_ORIENTATION, orientation);
-            infoJson.put(MessageKey.STATE_INFO_MEMORY_LOW, MPUtility.isSystemMemoryLow(sContext));
-            infoJson.put(MessageKey.STATE_INFO_MEMORY_THRESHOLD, getSystemMemoryThreshold());
-            Integer networkType = MPUtility.getNetworkType(sContext, getTelephonyManager());
-            if (networkType != null) {
-                infoJson.put(MessageKey.STATE_INFO_NETWORK_TYPE, networkType);
+            infoJson.put(MessageKey.STATE_INFO_MEMORY_LOW, deviceState.memoryLow);
+            infoJson.put(MessageKey.STATE_INFO_MEMORY_THRESHOLD, deviceState.memoryThreshold);
+            if (deviceState.networkType != null) {
+                infoJson.put(MessageKey.STATE_INFO_NETWORK_TYPE, deviceState.networkType);
             }
 
         } catch (OutOfMemoryError error) {
@@ -223,6 +243,87 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
         return infoJson;
     }
 
+    /**
+     * Returns the most recent DeviceState snapshot. If there is none, it is queried now. If it is
+     * older than {@link #DEVICE_STATE_MAX_AGE_MILLIS}, it is still returned, and a refresh is
+     * started on the upload handler thread, so that building a message doesn't wait for it.
+     */
+    static DeviceState getDeviceState() {
+        DeviceState deviceState = sDeviceState.get();
+        if (deviceState == null) {
+            deviceState = new DeviceState(MPUtility.millitime());
+            sDeviceState.compareAndSet(null, deviceState);
+        } else if (MPUtility.millitime() - deviceState.timestamp > DEVICE_STATE_MAX_AGE_MILLIS
+                && sDeviceStateRefreshing.compareAndSet(false, true)) {
+            final DeviceState staleDeviceState = deviceState;
+            Runnable refresh = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // If the snapshot was invalidated meanwhile, a newer one has been or will be
+                        // queried, so it is not overwritten.
+                        sDeviceState.compareAndSet(staleDeviceState, new DeviceState(MPUtility.millitime()));
+                    } finally {
+                        sDeviceStateRefreshing.set(false);
+                    }
+                }
+            };
+            HandlerThread refreshThread = sUploadHandlerThread;
+            if (refreshThread == null || refreshThread.getLooper() == null || !new Handler(refreshThread.getLooper()).post(refresh)) {
+                refresh.run();
+                DeviceState refreshedDeviceState = sDeviceState.get();
+                if (refreshedDeviceState != null) {
+                    deviceState = refreshedDeviceState;
+                }
+            }
+        }
+        return deviceState;
+    }
+
+    /**
+     * Force the next call to {@link #getStateInfo()} to query the device state again, for example
+     * because the connectivity or location provider state has just changed.
+     */
+    static void invalidateDeviceState() {
+        sDeviceState.set(null);
+    }
+
+    /**
+     * Snapshot of the device state values which require system service calls or disk access to
+     * query. Message state-info is built from the most recent snapshot, rather than querying
+     * each value for every message.
+     */
+    static final class DeviceState {
+        final long timestamp;
+        final long availableInternalDisk;
+        final long availableExternalDisk;
+        final long availableMemory;
+        final long totalMemory;
+        final boolean memoryLow;
+        final long memoryThreshold;
+        @Nullable
+        final String gps;
+        @Nullable
+        final Integer networkType;
+
+        DeviceState(long timestamp) {
+            this.timestamp = timestamp;
+            if (!devicePerformanceMetricsDisabled) {
+                availableInternalDisk = MPUtility.getAvailableInternalDisk(sContext);
+                availableExternalDisk = MPUtility.getAvailableExternalDisk(sContext);
+            } else {
+                availableInternalDisk = 0;
+                availableExternalDisk = 0;
+            }
+            availableMemory = MPUtility.getAvailableMemory(sContext);
+            totalMemory = getTotalMemory();
+            memoryLow = MPUtility.isSystemMemoryLow(sContext);
+            memoryThreshold = getSystemMemoryThreshold();
+            gps = MPUtility.getGpsEnabled(sContext);
+            networkType = MPUtility.getNetworkType(sContext, getTelephonyManager());
+        }
+    }
+
     public static long getTotalMemory() {
         long total = sPreferences.getLong(Constants.MiscStorageKeys.TOTAL_MEMORY, -1);
         if (total < 0) {
@@ -538,7 +639,7 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
 
     public void setLocation(@Nullable Location location) {
         mLocation = location;
-        Logger.debug("Received location update: " + location);
+        Logger.debug(() -> "Received location update: " + location);
     }
 
     public Location getLocation() {
@@ -802,6 +903,7 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
                     setDataConnection(activeNetwork);
                     filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
                 }
+                filter.addAction(LocationManager.PROVIDERS_CHANGED_ACTION);
                 sContext.registerReceiver(sStatusBroadcastReceiver, filter);
 
                 InstallReferrerHelper.fetchInstallReferrer(sContext, new InstallReferrerHelper.InstallReferrerCallback() {
@@ -999,6 +1101,9 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
                             .getSystemService(Context.CONNECTIVITY_SERVICE);
                     NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
                     MessageManager.this.setDataConnection(activeNetwork);
+                    invalidateDeviceState();
+                } else if (LocationManager.PROVIDERS_CHANGED_ACTION.equals(intent.getAction())) {
+                    invalidateDeviceState();
                 } else if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
                     int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
                     int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
@@ -1040,6 +1145,9 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
         if (mUploadHandler != null) {
             mUploadHandler.disable(true);
         }
+        if (mIdentityHandler != null) {
+            mIdentityHandler.disable(true);
+        }
     }
 
     public static void destroy() {
@@ -1049,6 +1157,9 @@ public class MessageManager implements MessageManagerCallbacks, ReportingManager
         if (sUploadHandlerThread != null) {
             sUploadHandlerThread.quit();
         }
+        if (sIdentityHandlerThread != null) {
+            sIdentityHandlerThread.quit();
+        }
         startThreads();
     }
 
@@ -0,0 +1,102 @@
+package com.mparticle.internal;
+
+import androidx.annotation.Nullable;
+
+import com.mparticle.internal.messages.BaseMPMessage;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The trigger items of the core config, compiled once when the config is loaded, so that checking
+ * whether a message should trigger an upload doesn't need to read the config's JSON.
+ * <p>
+ * A message matches if there are message matches and it has every key of every one of them, with a
+ * value whose string form is equal ignoring case, or if the hash of its type and name is one of the
+ * trigger hashes. Message match entries without keys constrain nothing.
+ */
+class TriggerMessageMatcher {
+    static final TriggerMessageMatcher EMPTY = new TriggerMessageMatcher(false, new KeyMatch[0], new int[0]);
+
+    private final boolean hasMessageMatches;
+    private final KeyMatch[] keyMatches;
+    private final int[] sortedHashes;
+
+    private TriggerMessageMatcher(boolean hasMessageMatches, KeyMatch[] keyMatches, int[] sortedHashes) {
+        this.hasMessageMatches = hasMessageMatches;
+        this.keyMatches = keyMatches;
+        this.sortedHashes = sortedHashes;
+    }
+
+    static TriggerMessageMatcher compile(@Nullable JSONArray messageMatches, @Nullable JSONArray hashes) {
+        List<KeyMatch> keyMatches = new ArrayList<KeyMatch>();
+        if (messageMatches != null) {
+            for (int i = 0; i < messageMatches.length(); i++) {
+                JSONObject messageMatch = messageMatches.optJSONObject(i);
+                if (messageMatch == null) {
+                    continue;
+                }
+                Iterator<String> keys = messageMatch.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    keyMatches.add(new KeyMatch(key, messageMatch.opt(key)));
+                }
+            }
+        }
+        int[] sortedHashes = new int[hashes == null ? 0 : hashes.length()];
+        int hashCount = 0;
+        for (int i = 0; i < sortedHashes.length; i++) {
+            try {
+                sortedHashes[hashCount] = hashes.getInt(i);
+                hashCount++;
+            } catch (JSONException jse) {
+
+            }
+        }
+        sortedHashes = Arrays.copyOf(sortedHashes, hashCount);
+        Arrays.sort(sortedHashes);
+        boolean hasMessageMatches = messageMatches != null && messageMatches.length() > 0;
+        return new TriggerMessageMatcher(hasMessageMatches, keyMatches.toArray(new KeyMatch[keyMatches.size()]), sortedHashes);
+    }
+
+    boolean matches(BaseMPMessage message) {
+        if (hasMessageMatches) {
+            boolean matches = true;
+            for (int i = 0; matches && i < keyMatches.length; i++) {
+                matches = keyMatches[i].matches(message);
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return sortedHashes.length > 0 && Arrays.binarySearch(sortedHashes, message.getTypeNameHash()) >= 0;
+    }
+
+    private static class KeyMatch {
+        private final String key;
+        private final String value;
+
+        KeyMatch(String key, Object value) {
+            this.key = key;
+            //values are compared as strings, as JSONObject.getString() would coerce them
+            this.value = String.valueOf(value);
+        }
+
+        boolean matches(JSONObject message) {
+            Object messageValue = message.opt(key);
+            if (messageValue == null) {
+                return false;
+            }
+            if (messageValue instanceof String) {
+                return value.equalsIgnoreCase((String) messageValue);
+            }
+            return value.equalsIgnoreCase(String.valueOf(messageValue));
+        }
+    }
+}
@@ -23,7 +23,16 @@ import org.json.JSONException;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLHandshakeException;
 
@@ -70,6 +79,12 @@ public class UploadHandler extends BaseHandler {
      */
     volatile boolean isNetworkConnected = true;
 
+    /**
+     * Worker pool used to keep more than one message batch request in-flight, only created
+     * when upload concurrency has been configured.
+     */
+    private ThreadPoolExecutor mUploadExecutor;
+
     /**
      * Only used for unit testing.
      */
@@ -187,18 +202,23 @@ public class UploadHandler extends BaseHandler {
      */
     protected void upload() {
         mParticleDBManager.cleanupUploadMessages();
+        boolean uploading = false;
         try {
-            List<MParticleDBManager.ReadyUpload> readyUploads = mParticleDBManager.getReadyUploads();
-            if (readyUploads.size() > 0) {
-                mApiClient.fetchConfig();
-            }
-            for (MParticleDBManager.ReadyUpload readyUpload : readyUploads) {
-                String message = readyUpload.getMessage();
-                InternalListenerManager.getListener().onCompositeObjects(readyUpload, message);
-                if (readyUpload.isAliasRequest()) {
-                    uploadAliasRequest(readyUpload.getId(), message, readyUpload.getUploadSettings());
-                } else {
-                    uploadMessage(readyUpload.getId(), message, readyUpload.getUploadSettings());
+            Iterator<MParticleDBManager.ReadyUpload> readyUploads = mParticleDBManager.getReadyUploadIterator();
+            uploading = readyUploads.hasNext();
+            int uploadConcurrency = mConfigManager.getUploadConcurrency();
+            if (uploadConcurrency > 1 && readyUploads.hasNext()) {
+                uploadPipelined(readyUploads, uploadConcurrency);
+            } else {
+                while (readyUploads.hasNext()) {
+                    MParticleDBManager.ReadyUpload readyUpload = readyUploads.next();
+                    String message = readyUpload.getMessage();
+                    InternalListenerManager.getListener().onCompositeObjects(readyUpload, message);
+                    if (readyUpload.isAliasRequest()) {
+                        uploadAliasRequest(readyUpload.getId(), message, readyUpload.getUploadSettings());
+                    } else {
+                        uploadMessage(readyUpload.getId(), message, readyUpload.getUploadSettings());
+                    }
                 }
             }
         } catch (MParticleApiClientImpl.MPThrottleException e) {
@@ -208,10 +228,160 @@ public class UploadHandler extends BaseHandler {
             Logger.error("Bad API request - is the correct API key and secret configured?");
         } catch (Exception e) {
             Logger.error(e, "Error processing batch uploads in mParticle DB.");
+        } finally {
+            if (uploading) {
+                //revalidate the cached config after the uploads are sent, rather than holding them behind the config request,
+                //and whether or not they succeeded, since a failing backlog may be what a new config fixes
+                revalidateConfig();
+            }
+        }
+    }
+
+    /**
+     * Fetch the config, subject to the usual minimum interval between requests.
+     */
+    private void revalidateConfig() {
+        try {
+            mApiClient.fetchConfig();
+        } catch (SSLHandshakeException ssle) {
+            Logger.debug("SSL handshake failed while fetching config - possible MITM attack detected.");
+        } catch (MParticleApiClientImpl.MPConfigException e) {
+            Logger.error("Bad API request - is the correct API key and secret configured?");
+        } catch (Exception e) {
+            Logger.verbose("Error fetching config after uploads: " + e.toString());
+        }
+    }
+
+    /**
+     * Uploads message batches with up to {@code maxInFlight} requests outstanding at once. Requests
+     * are issued on worker threads, but their results are processed here, in the order the
+     * batches were created, so uploads are deleted and forwarded to kits in order. Alias requests
+     * are not pipelined, they are sent from this thread once the batches ahead of them have completed.
+     * <p>
+     * If a request fails, no further requests are issued, but the results of requests already
+     * in-flight are still processed before the failure is rethrown.
+     */
+    void uploadPipelined(Iterator<MParticleDBManager.ReadyUpload> iterator, int maxInFlight) throws IOException, MParticleApiClientImpl.MPThrottleException {
+        ThreadPoolExecutor executor = getUploadExecutor(maxInFlight);
+        ArrayDeque<PendingUpload> inFlight = new ArrayDeque<PendingUpload>(maxInFlight);
+        MParticleDBManager.ReadyUpload nextUpload = null;
+        Throwable failure = null;
+        while (true) {
+            while (failure == null && inFlight.size() < maxInFlight && (nextUpload != null || iterator.hasNext())) {
+                if (nextUpload == null) {
+                    nextUpload = iterator.next();
+                    InternalListenerManager.getListener().onCompositeObjects(nextUpload, nextUpload.getMessage());
+                }
+                if (nextUpload.isAliasRequest()) {
+                    break;
+                }
+                inFlight.add(new PendingUpload(nextUpload, executor.submit(new SendBatchTask(nextUpload))));
+                nextUpload = null;
+            }
+            if (inFlight.isEmpty()) {
+                if (failure != null || nextUpload == null) {
+                    break;
+                }
+                //alias requests are sent in order, after every batch ahead of them has completed
+                try {
+                    uploadAliasRequest(nextUpload.getId(), nextUpload.getMessage(), nextUpload.getUploadSettings());
+                } catch (Exception e) {
+                    failure = e;
+                }
+                nextUpload = null;
+                continue;
+            }
+            PendingUpload pending = inFlight.poll();
+            try {
+                onBatchUploaded(pending.readyUpload.getId(), pending.readyUpload.getMessage(), awaitUninterruptibly(pending.result));
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof MParticleApiClientImpl.MPThrottleException) {
+            throw (MParticleApiClientImpl.MPThrottleException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    private static <T> T awaitUninterruptibly(Future<T> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void disable(boolean disable) {
+        super.disable(disable);
+        if (disable) {
+            shutdownUploadExecutor();
+        }
+    }
+
+    /**
+     * Release the upload worker threads. A new pool is created if uploads are pipelined again.
+     */
+    private synchronized void shutdownUploadExecutor() {
+        if (mUploadExecutor != null) {
+            mUploadExecutor.shutdown();
+            mUploadExecutor = null;
         }
     }
 
+    private synchronized ThreadPoolExecutor getUploadExecutor(int maxInFlight) {
+        if (mUploadExecutor == null) {
+            mUploadExecutor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private int count;
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "mParticleUploadWorker-" + (++count));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mUploadExecutor.allowCoreThreadTimeOut(true);
+        } else if (mUploadExecutor.getMaximumPoolSize() != maxInFlight) {
+            if (maxInFlight > mUploadExecutor.getMaximumPoolSize()) {
+                mUploadExecutor.setMaximumPoolSize(maxInFlight);
+                mUploadExecutor.setCorePoolSize(maxInFlight);
+            } else {
+                mUploadExecutor.setCorePoolSize(maxInFlight);
+                mUploadExecutor.setMaximumPoolSize(maxInFlight);
+            }
+        }
+        return mUploadExecutor;
+    }
+
     void uploadMessage(int id, String message, UploadSettings uploadSettings) throws IOException, MParticleApiClientImpl.MPThrottleException {
+        onBatchUploaded(id, message, sendMessageBatch(message, uploadSettings));
+    }
+
+    /**
+     * Send a single message batch. This may be called from an upload worker thread, so it must
+     * not touch the database.
+     *
+     * @return true if the batch should be removed from the uploads table
+     */
+    private boolean sendMessageBatch(String message, UploadSettings uploadSettings) throws IOException, MParticleApiClientImpl.MPThrottleException {
         int responseCode = -1;
         boolean sampling = false;
         try {
@@ -227,7 +397,11 @@ public class UploadHandler extends BaseHandler {
             sampling = true;
         }
 
-        if (sampling || shouldDelete(responseCode)) {
+        return sampling || shouldDelete(responseCode);
+    }
+
+    private void onBatchUploaded(int id, String message, boolean delete) {
+        if (delete) {
             forwardBatchToKits(message);
             mParticleDBManager.deleteUpload(id);
         } else {
@@ -235,6 +409,29 @@ public class UploadHandler extends BaseHandler {
         }
     }
 
+    private final class SendBatchTask implements Callable<Boolean> {
+        private final MParticleDBManager.ReadyUpload readyUpload;
+
+        SendBatchTask(MParticleDBManager.ReadyUpload readyUpload) {
+            this.readyUpload = readyUpload;
+        }
+
+        @Override
+        public Boolean call() throws Exception {
+            return sendMessageBatch(readyUpload.getMessage(), readyUpload.getUploadSettings());
+        }
+    }
+
+    private static final class PendingUpload {
+        final MParticleDBManager.ReadyUpload readyUpload;
+        final Future<Boolean> result;
+
+        PendingUpload(MParticleDBManager.ReadyUpload readyUpload, Future<Boolean> result) {
+            this.readyUpload = readyUpload;
+            this.result = result;
+        }
+    }
+
     void uploadAliasRequest(int id, String aliasRequestMessage, UploadSettings uploadSettings) throws IOException, MParticleApiClientImpl.MPThrottleException {
         MParticleApiClient.AliasNetworkResponse response = new MParticleApiClientImpl.AliasNetworkResponse(-1);
         boolean sampling = false;
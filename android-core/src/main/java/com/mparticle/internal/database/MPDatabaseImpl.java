@@ -11,6 +11,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Delegates to {@link SQLiteDatabase}. Inserts are not precompiled here: SQLiteDatabase already
+ * reuses the prepared statement for repeated SQL from each connection's statement cache, and a
+ * {@link android.database.sqlite.SQLiteStatement} can't be shared between threads, or outlive the
+ * database it was compiled against.
+ */
 public class MPDatabaseImpl implements MPDatabase {
     SQLiteDatabase sqLiteDatabase;
 
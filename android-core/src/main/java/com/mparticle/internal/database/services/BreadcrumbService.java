@@ -15,10 +15,21 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
 public class BreadcrumbService extends BreadcrumbTable {
 
     private static final String[] idColumns = {"_id"};
 
+    /**
+     * The ids of the stored breadcrumbs for each MPID, oldest first, so that trimming a full
+     * breadcrumb list does not need to query the table. Each ring is loaded from the database on
+     * first use.
+     */
+    private static final Map<Long, ArrayDeque<Long>> sBreadcrumbRings = new HashMap<Long, ArrayDeque<Long>>();
+
     public static int insertBreadcrumb(MPDatabase db, Context context, BaseMPMessage message, String apiKey, Long mpid) throws JSONException {
         if (message == null) {
             return -1;
@@ -30,22 +41,73 @@ public class BreadcrumbService extends BreadcrumbTable {
         contentValues.put(BreadcrumbTableColumns.SESSION_ID, message.getSessionId());
         contentValues.put(BreadcrumbTableColumns.MESSAGE, message.toString());
 
-        db.insert(BreadcrumbTableColumns.TABLE_NAME, null, contentValues);
-        Cursor cursor = db.query(BreadcrumbTableColumns.TABLE_NAME,
-                idColumns,
-                BreadcrumbTableColumns.MP_ID + " = ?",
-                new String[]{String.valueOf(mpid)},
-                null,
-                null,
-                " _id asc");
-        if (cursor.moveToFirst()) {
-            int minId = cursor.getInt(0);
-            if (cursor.getCount() > ConfigManager.getBreadcrumbLimit(context, mpid)) {
-                String[] limit = {String.valueOf(minId)};
-                return db.delete(BreadcrumbTableColumns.TABLE_NAME, " _id = ?", limit);
+        if (mpid == null) {
+            db.insert(BreadcrumbTableColumns.TABLE_NAME, null, contentValues);
+            return -1;
+        }
+        synchronized (sBreadcrumbRings) {
+            ArrayDeque<Long> ring = sBreadcrumbRings.get(mpid);
+            if (ring == null) {
+                ring = loadBreadcrumbRing(db, mpid);
+                sBreadcrumbRings.put(mpid, ring);
+            }
+            long id = db.insert(BreadcrumbTableColumns.TABLE_NAME, null, contentValues);
+            if (id < 0) {
+                return -1;
+            }
+            if (!ring.isEmpty() && ring.peekLast() >= id) {
+                // ids only ever increase, so the table must have been recreated underneath us
+                ring = loadBreadcrumbRing(db, mpid);
+                sBreadcrumbRings.put(mpid, ring);
+            } else {
+                ring.addLast(id);
+            }
+            int limit = ConfigManager.getBreadcrumbLimit(context, mpid);
+            int deleted = 0;
+            while (ring.size() > limit) {
+                String[] oldest = {String.valueOf(ring.pollFirst()), String.valueOf(mpid)};
+                deleted += db.delete(BreadcrumbTableColumns.TABLE_NAME, " _id = ? and " + BreadcrumbTableColumns.MP_ID + " = ?", oldest);
+            }
+            return deleted > 0 ? deleted : -1;
+        }
+    }
+
+    private static ArrayDeque<Long> loadBreadcrumbRing(MPDatabase db, long mpid) {
+        ArrayDeque<Long> ring = new ArrayDeque<Long>();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(BreadcrumbTableColumns.TABLE_NAME,
+                    idColumns,
+                    BreadcrumbTableColumns.MP_ID + " = ?",
+                    new String[]{String.valueOf(mpid)},
+                    null,
+                    null,
+                    " _id asc");
+            while (cursor.moveToNext()) {
+                ring.addLast(cursor.getLong(0));
+            }
+        } finally {
+            if (cursor != null && !cursor.isClosed()) {
+                cursor.close();
             }
         }
-        return -1;
+        return ring;
+    }
+
+    /**
+     * Forget the cached breadcrumb ids, for when the database has been deleted without
+     * {@link #deleteAll(MPDatabase)}.
+     */
+    public static void clearBreadcrumbRings() {
+        synchronized (sBreadcrumbRings) {
+            sBreadcrumbRings.clear();
+        }
+    }
+
+    @Override
+    public void updateMpId(MPDatabase database, long oldMpId, long newMpId) {
+        clearBreadcrumbRings();
+        super.updateMpId(database, oldMpId, newMpId);
     }
 
     private static final String[] breadcrumbColumns = {
@@ -107,6 +169,7 @@ public class BreadcrumbService extends BreadcrumbTable {
     }
 
     public static void deleteAll(MPDatabase db) {
+        clearBreadcrumbRings();
         db.delete(BreadcrumbTableColumns.TABLE_NAME, null, null);
     }
 }
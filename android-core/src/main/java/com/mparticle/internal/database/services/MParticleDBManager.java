@@ -4,6 +4,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.location.Location;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 
@@ -35,18 +36,36 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MParticleDBManager {
     private SharedPreferences mPreferences;
     private Context mContext;
     private DatabaseHelper mDatabaseHelper;
     private MParticleOptions options;
+    /**
+     * The number of messages stored since the messages table was last found to have no messages
+     * ready for upload. While it is 0, {@link #hasMessagesForUpload()} does not need to query.
+     * It starts out non-zero, since nothing is known about the table yet.
+     */
+    private final AtomicInteger mMessagesSinceLastUploadCheck = new AtomicInteger(1);
+    private final ConcurrentHashMap<Long, UserAttributeSnapshot> mUserAttributeSnapshots = new ConcurrentHashMap<Long, UserAttributeSnapshot>();
+    /**
+     * Orders user attribute snapshots by when they started loading, see {@link #getUserAttributeSnapshot(long)}.
+     */
+    private final AtomicLong mUserAttributeGeneration = new AtomicLong();
+    private long mUserAttributesClearedGeneration;
 
     MParticleDBManager() {
         //for unit testing
@@ -57,6 +76,9 @@ public class MParticleDBManager {
         this.options = options;
         mPreferences = context.getSharedPreferences(Constants.PREFS_FILE, Context.MODE_PRIVATE);
         mDatabaseHelper = new DatabaseHelper(context);
+        if (isWriteAheadLoggingEnabled()) {
+            mDatabaseHelper.setWriteAheadLoggingEnabled(true);
+        }
     }
 
     public MParticleDBManager(Context context) {
@@ -73,6 +95,12 @@ public class MParticleDBManager {
         return new MPDatabaseImpl(mDatabaseHelper.getWritableDatabase());
     }
 
+    private boolean isWriteAheadLoggingEnabled() {
+        return options != null
+                && Boolean.TRUE.equals(options.isWriteAheadLoggingEnabled())
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+    }
+
     public void updateMpId(long oldMpId, long newMpId) {
         MPDatabase db = getDatabase();
         try {
@@ -86,6 +114,13 @@ public class MParticleDBManager {
         } finally {
             db.endTransaction();
         }
+        // Messages logged under the temporary MPID may now be eligible for upload. This is only
+        // counted once the transaction has ended, so a concurrent probe can't miss them.
+        mMessagesSinceLastUploadCheck.incrementAndGet();
+        // the old MPID is refreshed, rather than dropped, so that a load of it which is still in
+        // flight can't publish the attributes which have just been moved
+        refreshUserAttributeSnapshot(oldMpId);
+        refreshUserAttributeSnapshot(newMpId);
     }
 
     /**
@@ -113,12 +148,32 @@ public class MParticleDBManager {
     }
 
     public void insertMessage(String apiKey, BaseMPMessage message, String dataplanId, Integer dataplanVersion) throws JSONException {
+        insertMessage(apiKey, message, dataplanId, dataplanVersion, false);
+    }
+
+    /**
+     * @param inTransaction true if the insert is part of a transaction the caller has yet to commit.
+     *                      The caller must then call {@link #onMessagesCommitted()} once it has,
+     *                      since the message is not visible to {@link #hasMessagesForUpload()} before then
+     */
+    public void insertMessage(String apiKey, BaseMPMessage message, String dataplanId, Integer dataplanVersion, boolean inTransaction) throws JSONException {
         MessageService.insertMessage(getDatabase(), apiKey, message, message.getMpId(), dataplanId, dataplanVersion);
+        if (!inTransaction) {
+            mMessagesSinceLastUploadCheck.incrementAndGet();
+        }
         if (sMessageListener != null) {
             sMessageListener.onMessageStored(message);
         }
     }
 
+    /**
+     * Record that a transaction containing messages inserted with
+     * {@link #insertMessage(String, BaseMPMessage, String, Integer, boolean)} has been committed.
+     */
+    public void onMessagesCommitted() {
+        mMessagesSinceLastUploadCheck.incrementAndGet();
+    }
+
     private static MessageListener sMessageListener;
 
     static void setMessageListener(MessageListener messageListener) {
@@ -138,8 +193,18 @@ public class MParticleDBManager {
      */
 
     public boolean hasMessagesForUpload() {
+        int messagesSinceLastCheck = mMessagesSinceLastUploadCheck.get();
+        if (messagesSinceLastCheck == 0) {
+            return false;
+        }
         MPDatabase db = getDatabase();
-        return MessageService.hasMessagesForUpload(db);
+        boolean hasMessages = MessageService.hasMessagesForUpload(db);
+        if (!hasMessages) {
+            // If a message was stored while querying, the count will have changed, and the
+            // next call will query again.
+            mMessagesSinceLastUploadCheck.compareAndSet(messagesSinceLastCheck, 0);
+        }
+        return hasMessages;
     }
 
     public void createMessagesForUploadMessage(ConfigManager configManager, DeviceAttributes deviceAttributes, String currentSessionId, UploadSettings uploadSettings) throws JSONException {
@@ -154,28 +219,28 @@ public class MParticleDBManager {
             HashMap<BatchId, MessageBatch> uploadMessagesByBatchId = getUploadMessageByBatchIdMap(readyMessages, db, configManager, false);
 
             List<ReportingService.ReportingMessage> reportingMessages = ReportingService.getReportingMessagesForUpload(db);
-            for (ReportingService.ReportingMessage reportingMessage : reportingMessages) {
-                MessageBatch match = null;
-                MessageBatch sessionIdMatch = null;
-                MessageBatch notAMatch = null;
+            //index the batches by session id & mpid, and by session id. Later batches replace earlier ones,
+            //so each reporting message is matched to the last suitable batch in iteration order
+            Map<BatchId, MessageBatch> batchesBySessionAndMpid = new HashMap<BatchId, MessageBatch>();
+            Map<String, MessageBatch> batchesBySession = new HashMap<String, MessageBatch>();
+            MessageBatch lastBatch = null;
+            if (!reportingMessages.isEmpty()) {
                 for (Map.Entry<BatchId, MessageBatch> messageBatchEntry : uploadMessagesByBatchId.entrySet()) {
                     BatchId batchId = messageBatchEntry.getKey();
-                    if (MPUtility.isEqual(batchId.getSessionId(), reportingMessage.getSessionId()) &&
-                            MPUtility.isEqual(batchId.getMpid(), reportingMessage.getMpid())) {
-                        match = messageBatchEntry.getValue();
-                    } else if (MPUtility.isEqual(batchId.getSessionId(), reportingMessage.getSessionId())) {
-                        sessionIdMatch = messageBatchEntry.getValue();
-                    } else {
-                        notAMatch = messageBatchEntry.getValue();
-                    }
+                    batchesBySessionAndMpid.put(new BatchId(batchId.getMpid(), batchId.getSessionId(), null, null), messageBatchEntry.getValue());
+                    batchesBySession.put(batchId.getSessionId(), messageBatchEntry.getValue());
+                    lastBatch = messageBatchEntry.getValue();
                 }
+            }
+            for (ReportingService.ReportingMessage reportingMessage : reportingMessages) {
+                MessageBatch match = batchesBySessionAndMpid.get(new BatchId(reportingMessage.getMpid(), reportingMessage.getSessionId(), null, null));
                 if (match == null) {
-                    //if there's not matching by session id & mpid, use the first matching session id
-                    match = sessionIdMatch;
+                    //if there's not matching by session id & mpid, use a batch with a matching session id
+                    match = batchesBySession.get(reportingMessage.getSessionId());
                 }
                 if (match == null) {
-                    //if there's no matching session id then just use the first batch object
-                    match = notAMatch;
+                    //if there's no matching session id then just use any batch object
+                    match = lastBatch;
                 }
                 if (match != null) {
                     match.addReportingMessage(reportingMessage.getMsgObject());
@@ -221,11 +286,11 @@ public class MParticleDBManager {
                 uploadMessagesByBatchId.put(batchId, uploadMessage);
             }
             int messageLength = readyMessage.getMessage().length();
-            JSONObject msgObject = new JSONObject(readyMessage.getMessage());
             if (messageLength + uploadMessage.getMessageLengthBytes() > Constants.LIMIT_MAX_UPLOAD_SIZE) {
                 break;
             }
-            uploadMessage.addMessage(msgObject);
+            //the stored message is already serialized, so it is spliced into the batch rather than parsed
+            uploadMessage.addMessage(readyMessage.getMessage());
             InternalListenerManager.getListener().onCompositeObjects(readyMessage, uploadMessage);
             uploadMessage.incrementMessageLengthBytes(messageLength);
             highestUploadedMessageId = readyMessage.getMessageId();
@@ -241,6 +306,7 @@ public class MParticleDBManager {
     }
 
     private void createUploads(Map<BatchId, MessageBatch> uploadMessagesByBatchId, MPDatabase db, DeviceAttributes deviceAttributes, ConfigManager configManager, String currentSessionId, UploadSettings uploadSettings) {
+        boolean uploadsCreated = false;
         for (Map.Entry<BatchId, MessageBatch> messageBatchEntry : uploadMessagesByBatchId.entrySet()) {
             BatchId batchId = messageBatchEntry.getKey();
             MessageBatch uploadMessage = messageBatchEntry.getValue();
@@ -254,19 +320,19 @@ public class MParticleDBManager {
                 if (uploadMessage.getDeviceInfo() == null || sessionId.equals(currentSessionId)) {
                     uploadMessage.setDeviceInfo(deviceAttributes.getDeviceInfo(mContext));
                 }
-                JSONArray messages = uploadMessage.getMessages();
-                JSONArray identities = findIdentityState(configManager, messages, batchId.getMpid());
+                JSONArray identities = findIdentityState(configManager, uploadMessage, batchId.getMpid());
                 uploadMessage.setIdentities(identities);
-                JSONObject userAttributes = findUserAttributeState(messages, batchId.getMpid());
+                JSONObject userAttributes = findUserAttributeState(uploadMessage, batchId.getMpid());
                 uploadMessage.setUserAttributes(userAttributes);
 
                 JSONObject batch = uploadMessage;
                 if (options != null && options.getBatchCreationListener() != null) {
                     try {
+                        uploadMessage.inflateSerializedMessages();
                         batch = options.getBatchCreationListener().onBatchCreated(batch);
                         if (batch == null || batch.length() == 0) {
                             Logger.error("Not uploading batch due to 'onCreateBatch' handler being empty");
-                            return;
+                            break;
                         } else {
                             batch.put(Constants.MessageKey.MODIFIED_BATCH, true);
                         }
@@ -276,9 +342,13 @@ public class MParticleDBManager {
                 }
 
                 UploadService.insertUpload(db, batch, uploadSettings);
-                cleanSessions(currentSessionId);
+                uploadsCreated = true;
             }
         }
+        //no messages are deleted while the uploads are created, so the sessions only need to be cleaned once
+        if (uploadsCreated) {
+            cleanSessions(currentSessionId);
+        }
     }
 
     /**
@@ -297,20 +367,8 @@ public class MParticleDBManager {
     /**
      * Look for the last UAC message to find the end-state of user attributes.
      */
-    private JSONObject findUserAttributeState(JSONArray messages, long mpId) {
-        JSONObject userAttributes = null;
-        if (messages != null) {
-            for (int i = 0; i < messages.length(); i++) {
-                try {
-                    if (messages.getJSONObject(i).get(Constants.MessageKey.TYPE).equals(Constants.MessageType.USER_ATTRIBUTE_CHANGE)) {
-                        userAttributes = messages.getJSONObject(i).getJSONObject(Constants.MessageKey.USER_ATTRIBUTES);
-                        messages.getJSONObject(i).remove(Constants.MessageKey.USER_ATTRIBUTES);
-                    }
-                } catch (JSONException ignored) {
-                } catch (NullPointerException ignored) {
-                }
-            }
-        }
+    private JSONObject findUserAttributeState(MessageBatch uploadMessage, long mpId) {
+        JSONObject userAttributes = uploadMessage.removeFromMessages(Constants.MessageType.USER_ATTRIBUTE_CHANGE, Constants.MessageKey.USER_ATTRIBUTES, JSONObject.class);
         if (userAttributes == null) {
             return getAllUserAttributesJson(mpId);
         } else {
@@ -321,20 +379,8 @@ public class MParticleDBManager {
     /**
      * Look for the last UIC message to find the end-state of user identities.
      */
-    private JSONArray findIdentityState(ConfigManager configManager, JSONArray messages, long mpId) {
-        JSONArray identities = null;
-        if (messages != null) {
-            for (int i = 0; i < messages.length(); i++) {
-                try {
-                    if (messages.getJSONObject(i).get(Constants.MessageKey.TYPE).equals(Constants.MessageType.USER_IDENTITY_CHANGE)) {
-                        identities = messages.getJSONObject(i).getJSONArray(Constants.MessageKey.USER_IDENTITIES);
-                        messages.getJSONObject(i).remove(Constants.MessageKey.USER_IDENTITIES);
-                    }
-                } catch (JSONException ignored) {
-                } catch (NullPointerException ignored) {
-                }
-            }
-        }
+    private JSONArray findIdentityState(ConfigManager configManager, MessageBatch uploadMessage, long mpId) {
+        JSONArray identities = uploadMessage.removeFromMessages(Constants.MessageType.USER_IDENTITY_CHANGE, Constants.MessageKey.USER_IDENTITIES, JSONArray.class);
         if (identities == null) {
             return configManager.getUserIdentityJson(mpId);
         } else {
@@ -471,6 +517,15 @@ public class MParticleDBManager {
         return UploadService.getReadyUploads(getDatabase());
     }
 
+    /**
+     * Iterates over the ready uploads, in the same order as {@link #getReadyUploads()}, loading
+     * them from the database a page at a time, so that the memory required does not grow with
+     * the number of uploads waiting to be sent.
+     */
+    public Iterator<ReadyUpload> getReadyUploadIterator() {
+        return new ReadyUploadIterator();
+    }
+
     public int deleteUpload(int id) {
         return UploadService.deleteUpload(getDatabase(), id);
     }
@@ -484,26 +539,91 @@ public class MParticleDBManager {
      */
 
     public Map<String, Object> getUserAttributeSingles(long mpId) {
-        if (getDatabase() != null) {
-            Map<String, String> stringifiedAttributes = UserAttributesService.getUserAttributesSingles(getDatabase(), mpId);
-            Map<String, Object> typedAttributes = new HashMap<>();
-            for (Map.Entry<String, String> stringifiedAttribute : stringifiedAttributes.entrySet()) {
-                String key = stringifiedAttribute.getKey();
-                String value = stringifiedAttribute.getValue();
-                typedAttributes.put(key, MPUtility.toNumberOrString(value));
-            }
-            return typedAttributes;
+        UserAttributeSnapshot snapshot = getUserAttributeSnapshot(mpId);
+        if (snapshot != null) {
+            return new HashMap<String, Object>(snapshot.singles);
         }
         return null;
     }
 
     public TreeMap<String, List<String>> getUserAttributeLists(long mpId) {
-        if (getDatabase() != null) {
-            return UserAttributesService.getUserAttributesLists(getDatabase(), mpId);
+        UserAttributeSnapshot snapshot = getUserAttributeSnapshot(mpId);
+        if (snapshot != null) {
+            TreeMap<String, List<String>> attributeLists = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, List<String>> entry : snapshot.lists.entrySet()) {
+                attributeLists.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+            }
+            return attributeLists;
         }
         return null;
     }
 
+    /**
+     * User attributes are read from an in-memory snapshot, per MPID, which is loaded from the database
+     * on first use and replaced by each write. Reads never touch the database once the snapshot
+     * is loaded, and callers always receive copies, so a snapshot is never modified once published.
+     * <p>
+     * Writes are made from both the message and the identity threads, so each load takes a
+     * generation before it reads the database, and a snapshot only replaces one of an older
+     * generation. A write's refresh takes its generation after the write is committed, so any load
+     * with a higher generation sees that write, and a slower, older load can never replace it.
+     */
+    @Nullable
+    private UserAttributeSnapshot getUserAttributeSnapshot(long mpId) {
+        UserAttributeSnapshot snapshot = mUserAttributeSnapshots.get(mpId);
+        if (snapshot == null) {
+            snapshot = loadUserAttributeSnapshot(mpId);
+            if (snapshot != null) {
+                snapshot = publishUserAttributeSnapshot(mpId, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the published snapshot, which is the given one unless a newer one was already published
+     */
+    private UserAttributeSnapshot publishUserAttributeSnapshot(long mpId, UserAttributeSnapshot snapshot) {
+        // only held while comparing generations, never while the database is read
+        synchronized (mUserAttributeSnapshots) {
+            UserAttributeSnapshot existing = mUserAttributeSnapshots.get(mpId);
+            if (snapshot.generation <= mUserAttributesClearedGeneration ||
+                    (existing != null && existing.generation > snapshot.generation)) {
+                return existing != null ? existing : snapshot;
+            }
+            mUserAttributeSnapshots.put(mpId, snapshot);
+            return snapshot;
+        }
+    }
+
+    @Nullable
+    private UserAttributeSnapshot loadUserAttributeSnapshot(long mpId) {
+        long generation = mUserAttributeGeneration.incrementAndGet();
+        MPDatabase db = getDatabase();
+        if (db == null) {
+            return null;
+        }
+        Map<String, String> stringifiedAttributes = UserAttributesService.getUserAttributesSingles(db, mpId);
+        Map<String, Object> typedAttributes = new HashMap<>();
+        for (Map.Entry<String, String> stringifiedAttribute : stringifiedAttributes.entrySet()) {
+            String key = stringifiedAttribute.getKey();
+            String value = stringifiedAttribute.getValue();
+            typedAttributes.put(key, MPUtility.toNumberOrString(value));
+        }
+        return new UserAttributeSnapshot(typedAttributes, UserAttributesService.getUserAttributesLists(db, mpId), generation);
+    }
+
+    /**
+     * Called after a write to the user attributes table has been committed.
+     */
+    private void refreshUserAttributeSnapshot(long mpId) {
+        UserAttributeSnapshot snapshot = loadUserAttributeSnapshot(mpId);
+        if (snapshot != null) {
+            publishUserAttributeSnapshot(mpId, snapshot);
+        } else {
+            mUserAttributeSnapshots.remove(mpId);
+        }
+    }
 
     public JSONObject getAllUserAttributesJson(long mpId) {
         Map<String, Object> attributes = getUserAttributes(null, mpId);
@@ -541,7 +661,7 @@ public class MParticleDBManager {
 
     public Map<String, Object> getUserAttributes(final UserAttributeListenerWrapper listener, final long mpId) {
         Map<String, Object> allUserAttributes = new HashMap<String, Object>();
-        if (listener == null || Looper.getMainLooper() != Looper.myLooper()) {
+        if (listener == null || Looper.getMainLooper() != Looper.myLooper() || mUserAttributeSnapshots.containsKey(mpId)) {
             Map<String, Object> userAttributes = getUserAttributeSingles(mpId);
             Map<String, List<String>> userAttributeLists = getUserAttributeLists(mpId);
             if (listener != null) {
@@ -624,6 +744,9 @@ public class MParticleDBManager {
         } finally {
             db.endTransaction();
         }
+        if (!attributionChanges.isEmpty()) {
+            refreshUserAttributeSnapshot(userAttribute.mpId);
+        }
         return attributionChanges;
     }
 
@@ -631,9 +754,10 @@ public class MParticleDBManager {
     public void removeUserAttribute(UserAttributeRemoval container, MessageManagerCallbacks callbacks) {
         Map<String, Object> currentValues = getUserAttributes(null, container.mpId);
         MPDatabase db = getDatabase();
+        int deleted = 0;
         try {
             db.beginTransaction();
-            int deleted = UserAttributesService.deleteAttributes(db, container.key, container.mpId);
+            deleted = UserAttributesService.deleteAttributes(db, container.key, container.mpId);
             if (callbacks != null && deleted > 0) {
                 callbacks.attributeRemoved(container.key, container.mpId);
                 callbacks.logUserAttributeChangeMessage(container.key, null, currentValues.get(container.key), true, false, container.time, container.mpId);
@@ -643,6 +767,9 @@ public class MParticleDBManager {
         } finally {
             db.endTransaction();
         }
+        if (deleted > 0) {
+            refreshUserAttributeSnapshot(container.mpId);
+        }
     }
 
     public void resetDatabaseForWorkspaceSwitching() {
@@ -659,6 +786,11 @@ public class MParticleDBManager {
         } finally {
             db.endTransaction();
         }
+        synchronized (mUserAttributeSnapshots) {
+            // loads which started before the tables were cleared must not be published
+            mUserAttributesClearedGeneration = mUserAttributeGeneration.incrementAndGet();
+            mUserAttributeSnapshots.clear();
+        }
     }
 
     public static class AttributionChange {
@@ -709,14 +841,61 @@ public class MParticleDBManager {
         }
     }
 
+    /**
+     * The most uploads, and total upload message length, loaded into memory by a
+     * {@link ReadyUploadIterator} at once.
+     */
+    static final int READY_UPLOAD_PAGE_SIZE = 10;
+    static final long READY_UPLOAD_PAGE_LENGTH = 2L * Constants.LIMIT_MAX_UPLOAD_SIZE;
+
+    class ReadyUploadIterator implements Iterator<ReadyUpload> {
+        private Iterator<ReadyUpload> page = Collections.<ReadyUpload>emptyList().iterator();
+        private long lastCreatedAt = Long.MIN_VALUE;
+        private int lastId = Integer.MIN_VALUE;
+        private boolean exhausted = false;
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && !exhausted) {
+                UploadService.ReadyUploadPage readyUploads = UploadService.getReadyUploads(getDatabase(), lastCreatedAt, lastId, READY_UPLOAD_PAGE_SIZE, READY_UPLOAD_PAGE_LENGTH);
+                // a page may hold no uploads because its rows were skipped, in which case the
+                // next page starts after them. Only a query which read no rows ends the pass.
+                exhausted = readyUploads.rowCount == 0;
+                lastCreatedAt = readyUploads.lastCreatedAt;
+                lastId = readyUploads.lastId;
+                page = readyUploads.uploads.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public ReadyUpload next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     public static class ReadyUpload {
         private int id;
+        private long createdAt;
         private String message;
         private boolean isAliasRequest;
         private UploadSettings uploadSettings;
 
         public ReadyUpload(int id, boolean isAliasRequest, String message, UploadSettings uploadSettings) {
+            this(id, 0, isAliasRequest, message, uploadSettings);
+        }
+
+        ReadyUpload(int id, long createdAt, boolean isAliasRequest, String message, UploadSettings uploadSettings) {
             this.id = id;
+            this.createdAt = createdAt;
             this.message = message;
             this.isAliasRequest = isAliasRequest;
             this.uploadSettings = uploadSettings;
@@ -739,6 +918,18 @@ public class MParticleDBManager {
         }
     }
 
+    private static final class UserAttributeSnapshot {
+        final Map<String, Object> singles;
+        final TreeMap<String, List<String>> lists;
+        final long generation;
+
+        UserAttributeSnapshot(Map<String, Object> singles, TreeMap<String, List<String>> lists, long generation) {
+            this.singles = singles;
+            this.lists = lists;
+            this.generation = generation;
+        }
+    }
+
     public static class UserAttributeRemoval {
         public String key;
         public long time;
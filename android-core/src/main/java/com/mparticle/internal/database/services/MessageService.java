@@ -114,8 +114,9 @@ public class MessageService extends MessageTable {
                     new String[]{Integer.toString(Constants.Status.UPLOADED), String.valueOf(Constants.TEMPORARY_MPID)},
                     null,
                     null,
-                    prepareOrderBy);
-            return messageIds.getCount() > 0;
+                    null,
+                    "1");
+            return messageIds.moveToFirst();
         } finally {
             if (messageIds != null && !messageIds.isClosed()) {
                 messageIds.close();
@@ -172,7 +173,7 @@ public class MessageService extends MessageTable {
     }
 
     public static int cleanupMessages(MPDatabase database) {
-        return database.delete(MessageTableColumns.TABLE_NAME, "length(" + MessageTableColumns.MESSAGE + ") > " + Constants.LIMIT_MAX_MESSAGE_SIZE, null);
+        return database.delete(MessageTableColumns.TABLE_NAME, MessageTableColumns.MESSAGE_LENGTH + " > " + Constants.LIMIT_MAX_MESSAGE_SIZE, null);
     }
 
 
@@ -222,6 +223,7 @@ public class MessageService extends MessageTable {
             return;
         }
         contentValues.put(MessageTableColumns.MESSAGE, messageString);
+        contentValues.put(MessageTableColumns.MESSAGE_LENGTH, messageString.length());
 
         if (Constants.MessageType.FIRST_RUN.equals(message.getString(Constants.MessageKey.TYPE))) {
             // Force the first run message to be parsed immediately.
@@ -26,6 +26,10 @@ import java.util.Map;
 import java.util.Set;
 
 public class SessionService extends SessionTable {
+    /**
+     * Keeps the number of bound arguments well below SQLite's limit of 999.
+     */
+    static final int MAX_SESSION_IDS_PER_QUERY = 500;
     public static String[] readyMessages = new String[]{Integer.toString(Constants.Status.UPLOADED)};
 
     public static int deleteSessions(MPDatabase database, String currentSessionId) {
@@ -59,6 +63,24 @@ public class SessionService extends SessionTable {
                 null);
     }
 
+    /**
+     * Query the session id, app info and device info of the given sessions.
+     */
+    static Cursor getSessions(MPDatabase db, List<String> sessionIds) {
+        StringBuilder selection = new StringBuilder(SESSION_ID).append(" IN (");
+        for (int i = 0; i < sessionIds.size(); i++) {
+            selection.append(i > 0 ? ",?" : "?");
+        }
+        selection.append(')');
+        return db.query(TABLE_NAME,
+                new String[]{SESSION_ID, APP_INFO, SessionTableColumns.DEVICE_INFO},
+                selection.toString(),
+                sessionIds.toArray(new String[sessionIds.size()]),
+                null,
+                null,
+                null);
+    }
+
     public static void updateSessionEndTime(MPDatabase db, String sessionId, long endTime, long sessionLength) {
         ContentValues sessionValues = new ContentValues();
         sessionValues.put(SessionTableColumns.END_TIME, endTime);
@@ -128,34 +150,42 @@ public class SessionService extends SessionTable {
     }
 
     public static List<JSONObject> processSessions(MPDatabase database, HashMap<BatchId, MessageBatch> uploadMessagesByBatchId) {
-        Cursor sessionCursor = null;
         List<JSONObject> deviceInfos = new ArrayList<JSONObject>();
         Map<String, List<MessageBatch>> batchesBySessionId = flattenBySessionId(uploadMessagesByBatchId);
-        try {
-            sessionCursor = SessionService.getSessions(database);
-            while (sessionCursor.moveToNext()) {
-                String sessionId = sessionCursor.getString(sessionCursor.getColumnIndexOrThrow(SessionTableColumns.SESSION_ID));
-                List<MessageBatch> batchList = batchesBySessionId.get(sessionId);
-                if (batchList != null) {
-                    try {
-                        String appInfo = sessionCursor.getString(sessionCursor.getColumnIndexOrThrow(APP_INFO));
-                        JSONObject appInfoJson = new JSONObject(appInfo);
-                        String deviceInfo = sessionCursor.getString(sessionCursor.getColumnIndexOrThrow(SessionTableColumns.DEVICE_INFO));
-                        JSONObject deviceInfoJson = new JSONObject(deviceInfo);
-                        deviceInfos.add(deviceInfoJson);
-                        for (MessageBatch batch : batchList) {
-                            batch.setAppInfo(appInfoJson);
-                            batch.setDeviceInfo(deviceInfoJson);
-                        }
-                    } catch (Exception e) {
+        List<String> sessionIds = new ArrayList<String>(batchesBySessionId.size());
+        for (String sessionId : batchesBySessionId.keySet()) {
+            if (sessionId != null) {
+                sessionIds.add(sessionId);
+            }
+        }
+        //only the sessions of the batches being uploaded are read, each row being parsed once and shared by its batches
+        for (int start = 0; start < sessionIds.size(); start += MAX_SESSION_IDS_PER_QUERY) {
+            Cursor sessionCursor = null;
+            try {
+                sessionCursor = getSessions(database, sessionIds.subList(start, Math.min(start + MAX_SESSION_IDS_PER_QUERY, sessionIds.size())));
+                int sessionIdIndex = sessionCursor.getColumnIndexOrThrow(SESSION_ID);
+                int appInfoIndex = sessionCursor.getColumnIndexOrThrow(APP_INFO);
+                int deviceInfoIndex = sessionCursor.getColumnIndexOrThrow(SessionTableColumns.DEVICE_INFO);
+                while (sessionCursor.moveToNext()) {
+                    List<MessageBatch> batchList = batchesBySessionId.get(sessionCursor.getString(sessionIdIndex));
+                    if (batchList != null) {
+                        try {
+                            JSONObject appInfoJson = new JSONObject(sessionCursor.getString(appInfoIndex));
+                            JSONObject deviceInfoJson = new JSONObject(sessionCursor.getString(deviceInfoIndex));
+                            deviceInfos.add(deviceInfoJson);
+                            for (MessageBatch batch : batchList) {
+                                batch.setAppInfo(appInfoJson);
+                                batch.setDeviceInfo(deviceInfoJson);
+                            }
+                        } catch (Exception e) {
 
+                        }
                     }
-
                 }
-            }
-        } finally {
-            if (sessionCursor != null && !sessionCursor.isClosed()) {
-                sessionCursor.close();
+            } finally {
+                if (sessionCursor != null && !sessionCursor.isClosed()) {
+                    sessionCursor.close();
+                }
             }
         }
         return deviceInfos;
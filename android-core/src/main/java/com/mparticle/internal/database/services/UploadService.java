@@ -2,7 +2,6 @@ package com.mparticle.internal.database.services;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import android.text.style.UpdateLayout;
 
 import com.mparticle.internal.Constants;
 import com.mparticle.internal.Logger;
@@ -43,14 +42,15 @@ public class UploadService extends UploadTable {
         List<MParticleDBManager.ReadyUpload> readyUploads = new ArrayList<MParticleDBManager.ReadyUpload>();
         Cursor readyUploadsCursor = null;
         try {
-            readyUploadsCursor = database.query(UploadTableColumns.TABLE_NAME, new String[]{"_id", UploadTableColumns.MESSAGE, UploadTableColumns.REQUEST_TYPE, UploadTableColumns.UPLOAD_SETTINGS},
-                    null, null, null, null, UploadTableColumns.CREATED_AT);
+            readyUploadsCursor = database.query(UploadTableColumns.TABLE_NAME, new String[]{"_id", UploadTableColumns.MESSAGE, UploadTableColumns.REQUEST_TYPE, UploadTableColumns.UPLOAD_SETTINGS, UploadTableColumns.CREATED_AT},
+                    null, null, null, null, UploadTableColumns.CREATED_AT + ", _id");
             int messageIdIndex = readyUploadsCursor.getColumnIndexOrThrow(UploadTableColumns._ID);
             int messageIndex = readyUploadsCursor.getColumnIndexOrThrow(UploadTableColumns.MESSAGE);
             int requestTypeIndex = readyUploadsCursor.getColumnIndexOrThrow(UploadTableColumns.REQUEST_TYPE);
             int uploadSettingsIndex = readyUploadsCursor.getColumnIndexOrThrow(UploadTableColumns.UPLOAD_SETTINGS);
+            int createdAtIndex = readyUploadsCursor.getColumnIndexOrThrow(UploadTableColumns.CREATED_AT);
             while (readyUploadsCursor.moveToNext()) {
-                MParticleDBManager.ReadyUpload readyUpload = new MParticleDBManager.ReadyUpload(readyUploadsCursor.getInt(messageIdIndex), UploadTable.ALIAS_REQUEST.equals(readyUploadsCursor.getString(requestTypeIndex)), readyUploadsCursor.getString(messageIndex), UploadSettings.withJson(readyUploadsCursor.getString(uploadSettingsIndex)));
+                MParticleDBManager.ReadyUpload readyUpload = new MParticleDBManager.ReadyUpload(readyUploadsCursor.getInt(messageIdIndex), readyUploadsCursor.getLong(createdAtIndex), UploadTable.ALIAS_REQUEST.equals(readyUploadsCursor.getString(requestTypeIndex)), readyUploadsCursor.getString(messageIndex), UploadSettings.withJson(readyUploadsCursor.getString(uploadSettingsIndex)));
                 readyUploads.add(readyUpload);
                 InternalListenerManager.getListener().onCompositeObjects(readyUploadsCursor, readyUpload);
             }
@@ -64,6 +64,88 @@ public class UploadService extends UploadTable {
         return readyUploads;
     }
 
+    /**
+     * Returns the next page of uploads, in the same order as {@link #getReadyUploads(MPDatabase)},
+     * starting after the upload identified by {@code afterCreatedAt} and {@code afterId}.
+     * <p>
+     * A page holds at most {@code maxUploads} uploads, and stops before the upload which would take
+     * the total message length over {@code maxLength}. The first upload is always returned, so that
+     * a single oversized upload can not stall the queue. Rows whose message can't be read are
+     * skipped, but still move the page's position, so that the next page starts after them.
+     */
+    static ReadyUploadPage getReadyUploads(MPDatabase database, long afterCreatedAt, int afterId, int maxUploads, long maxLength) {
+        ReadyUploadPage page = new ReadyUploadPage(afterCreatedAt, afterId);
+        Cursor readyUploadsCursor = null;
+        try {
+            String[] selectionArgs = new String[]{String.valueOf(afterCreatedAt), String.valueOf(afterCreatedAt), String.valueOf(afterId)};
+            readyUploadsCursor = database.query(UploadTableColumns.TABLE_NAME, new String[]{"_id", UploadTableColumns.CREATED_AT, UploadTableColumns.REQUEST_TYPE, UploadTableColumns.UPLOAD_SETTINGS, "length(" + UploadTableColumns.MESSAGE + ")"},
+                    UploadTableColumns.CREATED_AT + " > ? or (" + UploadTableColumns.CREATED_AT + " = ? and _id > ?)", selectionArgs, null, null,
+                    UploadTableColumns.CREATED_AT + ", _id", String.valueOf(maxUploads));
+            long pageLength = 0;
+            while (readyUploadsCursor.moveToNext()) {
+                long messageLength = readyUploadsCursor.getLong(4);
+                if (!page.uploads.isEmpty() && pageLength + messageLength > maxLength) {
+                    break;
+                }
+                pageLength += messageLength;
+                int id = readyUploadsCursor.getInt(0);
+                long createdAt = readyUploadsCursor.getLong(1);
+                page.lastCreatedAt = createdAt;
+                page.lastId = id;
+                page.rowCount++;
+                // the message is read separately, so that messages beyond the memory budget are never loaded
+                String message;
+                try {
+                    message = getUploadMessage(database, id);
+                } catch (Exception e) {
+                    Logger.error(e, "Failed to read upload " + id);
+                    continue;
+                }
+                if (message == null) {
+                    continue;
+                }
+                MParticleDBManager.ReadyUpload readyUpload = new MParticleDBManager.ReadyUpload(id, createdAt, UploadTable.ALIAS_REQUEST.equals(readyUploadsCursor.getString(2)), message, UploadSettings.withJson(readyUploadsCursor.getString(3)));
+                page.uploads.add(readyUpload);
+                InternalListenerManager.getListener().onCompositeObjects(readyUploadsCursor, readyUpload);
+            }
+        } catch (Exception e) {
+            Logger.error(e, "Failed to get ready uploads");
+        } finally {
+            if (readyUploadsCursor != null && !readyUploadsCursor.isClosed()) {
+                readyUploadsCursor.close();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * A page of ready uploads, and the position of the last row it read, which may be beyond the
+     * last upload if rows were skipped.
+     */
+    static class ReadyUploadPage {
+        final List<MParticleDBManager.ReadyUpload> uploads = new ArrayList<MParticleDBManager.ReadyUpload>();
+        long lastCreatedAt;
+        int lastId;
+        int rowCount = 0;
+
+        ReadyUploadPage(long afterCreatedAt, int afterId) {
+            lastCreatedAt = afterCreatedAt;
+            lastId = afterId;
+        }
+    }
+
+    private static String getUploadMessage(MPDatabase database, int id) {
+        Cursor cursor = null;
+        try {
+            cursor = database.query(UploadTableColumns.TABLE_NAME, new String[]{UploadTableColumns.MESSAGE}, "_id = ?", new String[]{String.valueOf(id)}, null, null, null);
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            if (cursor != null && !cursor.isClosed()) {
+                cursor.close();
+            }
+        }
+    }
+
     /**
      * After an actually successful upload over the wire.
      *
@@ -21,7 +21,7 @@ import java.util.Iterator;
 
 public class MParticleDatabaseHelper implements SQLiteOpenHelperWrapper {
     private final Context mContext;
-    public static final int DB_VERSION = 10;
+    public static final int DB_VERSION = 11;
     private static String DB_NAME = "mparticle.db";
 
     public static String getDbName() {
@@ -45,6 +45,7 @@ public class MParticleDatabaseHelper implements SQLiteOpenHelperWrapper {
         db.execSQL(BreadcrumbTable.CREATE_BREADCRUMBS_DDL);
         db.execSQL(ReportingTable.CREATE_REPORTING_DDL);
         db.execSQL(UserAttributesTable.CREATE_USER_ATTRIBUTES_DDL);
+        createMessageIndexes(db);
     }
 
     @Override
@@ -79,6 +80,9 @@ public class MParticleDatabaseHelper implements SQLiteOpenHelperWrapper {
         } catch (Exception e) {
             Logger.warning("Exception while upgrading SQLite Database:\n" + e.getMessage() + "\nThis may have been caused by the database having been already upgraded");
         }
+        if (oldVersion < 11) {
+            upgradeMessageLength(db);
+        }
     }
 
     @Override
@@ -106,6 +110,26 @@ public class MParticleDatabaseHelper implements SQLiteOpenHelperWrapper {
         db.execSQL(MessageTable.ADD_DATAPLAN_VERSION_COLUMN);
     }
 
+    private void upgradeMessageLength(SQLiteDatabase db) {
+        try {
+            db.execSQL(MessageTable.ADD_MESSAGE_LENGTH_COLUMN);
+        } catch (Exception e) {
+            Logger.warning("Exception while adding message length column:\n" + e.getMessage() + "\nThis may have been caused by the database having been already upgraded");
+        }
+        try {
+            db.execSQL(MessageTable.UPDATE_MESSAGE_LENGTH);
+            createMessageIndexes(db);
+        } catch (Exception e) {
+            Logger.warning("Exception while indexing messages table:\n" + e.getMessage());
+        }
+    }
+
+    private void createMessageIndexes(SQLiteDatabase db) {
+        db.execSQL(MessageTable.CREATE_MESSAGES_STATUS_INDEX_DDL);
+        db.execSQL(MessageTable.CREATE_MESSAGES_SESSION_INDEX_DDL);
+        db.execSQL(MessageTable.CREATE_MESSAGES_LENGTH_INDEX_DDL);
+    }
+
     private void upgradeMpId(SQLiteDatabase db) {
         final String currentMpId = String.valueOf(ConfigManager.getMpid(mContext));
         String updateStatement = "ALTER TABLE %s ADD COLUMN %s INTEGER DEFAULT \'%s\'";
@@ -8,6 +8,11 @@ public class MessageTable extends MpIdDependentTable {
             " ADD COLUMN " + MessageTableColumns.DATAPLAN_VERSION + " NUMBER";
     public static final String ADD_DATAPLAN_ID_COLUMN = "ALTER TABLE " + MessageTableColumns.TABLE_NAME +
             " ADD COLUMN " + MessageTableColumns.DATAPLAN_ID + " TEXT";
+    public static final String ADD_MESSAGE_LENGTH_COLUMN = "ALTER TABLE " + MessageTableColumns.TABLE_NAME +
+            " ADD COLUMN " + MessageTableColumns.MESSAGE_LENGTH + " INTEGER";
+    public static final String UPDATE_MESSAGE_LENGTH = "UPDATE " + MessageTableColumns.TABLE_NAME +
+            " SET " + MessageTableColumns.MESSAGE_LENGTH + " = length(" + MessageTableColumns.MESSAGE + ")" +
+            " WHERE " + MessageTableColumns.MESSAGE_LENGTH + " IS NULL";
 
     @Override
     public String getTableName() {
@@ -26,6 +31,7 @@ public class MessageTable extends MpIdDependentTable {
         String MP_ID = MpIdDependentTable.MP_ID;
         String DATAPLAN_VERSION = "dataplan_version";
         String DATAPLAN_ID = "dataplan_id";
+        String MESSAGE_LENGTH = "message_length";
     }
 
     static final String CREATE_MESSAGES_DDL =
@@ -40,7 +46,30 @@ public class MessageTable extends MpIdDependentTable {
                     MessageTableColumns.CF_UUID + " TEXT, " +
                     MessageTableColumns.MP_ID + " INTEGER, " +
                     MessageTableColumns.DATAPLAN_ID + " TEXT," +
-                    MessageTableColumns.DATAPLAN_VERSION + " INTEGER" +
+                    MessageTableColumns.DATAPLAN_VERSION + " INTEGER, " +
+                    MessageTableColumns.MESSAGE_LENGTH + " INTEGER" +
                     ");";
 
+    /**
+     * Serves the session history queries, which select already-uploaded messages. The index is
+     * ordered by _id within each status, so "ORDER BY _id" does not require a sort.
+     */
+    static final String CREATE_MESSAGES_STATUS_INDEX_DDL =
+            "CREATE INDEX IF NOT EXISTS messages_status_idx ON " + MessageTableColumns.TABLE_NAME +
+                    " (" + MessageTableColumns.STATUS + ");";
+
+    /**
+     * Covers SELECT DISTINCT session_id, so that it does not need to read every message.
+     */
+    static final String CREATE_MESSAGES_SESSION_INDEX_DDL =
+            "CREATE INDEX IF NOT EXISTS messages_session_idx ON " + MessageTableColumns.TABLE_NAME +
+                    " (" + MessageTableColumns.SESSION_ID + ");";
+
+    /**
+     * Lets oversized messages be found without computing length() for every message.
+     */
+    static final String CREATE_MESSAGES_LENGTH_INDEX_DDL =
+            "CREATE INDEX IF NOT EXISTS messages_length_idx ON " + MessageTableColumns.TABLE_NAME +
+                    " (" + MessageTableColumns.MESSAGE_LENGTH + ");";
+
 }
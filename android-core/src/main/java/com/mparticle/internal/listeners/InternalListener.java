@@ -26,26 +26,18 @@ public interface InternalListener {
     void onApiCalled(Object... objects);
 
     /**
-     * To be called when a Kit's API method is invoked. This overloaded variant should be used when
-     * the name of the method containing this method's invocation (in KitManagerImpl) matches the name of the
-     * Kit's method being invoked
+     * To be called when a Kit's API method is invoked. The method names are passed by the caller,
+     * rather than read from the stack, so callers should only build the arguments when
+     * {@link InternalListenerManager#isEnabled()}
      *
-     * @param kitId   the Id of the kit
-     * @param used    whether the Kit's method returned ReportingMessages, or null if return type is void
-     * @param objects the arguments supplied to the Kit
+     * @param invokingApiMethodName the public API method which triggered the invocation, for example "MParticle.logEvent()", or null if there was none
+     * @param kitManagerMethodName the KitManager method invoking the Kit, for example "KitManagerImpl.logEvent()"
+     * @param methodName           the name of the Kit's method being called, for example "logEvent()"
+     * @param kitId                the Id of the kit
+     * @param used                 whether the Kit's method returned ReportingMessages, or null if return type is void
+     * @param objects              the arguments supplied to the Kit
      */
-    void onKitApiCalled(int kitId, Boolean used, Object... objects);
-
-    /**
-     * to be called when a Kit's API method is invoked, and the name of the Kit's method is different
-     * then the method containing this method's invocation
-     *
-     * @param methodName the name of the Kit's method being called
-     * @param kitId      the Id of the kit
-     * @param used       whether the Kit's method returned ReportingMessages, or null if return type is void
-     * @param objects    the arguments supplied to the Kit
-     */
-    void onKitApiCalled(String methodName, int kitId, Boolean used, Object... objects);
+    void onKitApiCalled(String invokingApiMethodName, String kitManagerMethodName, String methodName, int kitId, Boolean used, Object... objects);
 
     /**
      * establishes a child-parent relationship between two objects. It is not necessary to call this
@@ -140,9 +132,7 @@ public interface InternalListener {
     InternalListener EMPTY = new InternalListener() {
         public void onApiCalled(Object... objects) { /* stub */}
 
-        public void onKitApiCalled(int kitId, Boolean used, Object... objects) { /* stub */}
-
-        public void onKitApiCalled(String methodName, int kitId, Boolean used, Object... objects) { /* stub */}
+        public void onKitApiCalled(String invokingApiMethodName, String kitManagerMethodName, String methodName, int kitId, Boolean used, Object... objects) { /* stub */}
 
         public void onEntityStored(Long rowId, String tableName, ContentValues contentValues) { /* stub */}
 
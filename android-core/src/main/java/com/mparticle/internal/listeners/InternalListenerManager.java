@@ -10,14 +10,12 @@ import androidx.annotation.Nullable;
 import com.mparticle.SdkListener;
 import com.mparticle.identity.AliasResponse;
 import com.mparticle.internal.InternalSession;
-import com.mparticle.internal.KitFrameworkWrapper;
 import com.mparticle.internal.MPUtility;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.lang.ref.WeakReference;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -88,57 +86,19 @@ public class InternalListenerManager implements InternalListener {
     }
 
     @Override
-    public void onKitApiCalled(int kitId, Boolean used, Object... objects) {
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-        String methodName = null;
-        for (int i = 0; i < stackTrace.length; i++) {
-            StackTraceElement element = stackTrace[i];
-            if (element.getClassName().equals(KitFrameworkWrapper.class.getName())) {
-                methodName = element.getMethodName() + "()";
-            }
-        }
-        onKitApiCalled(stackTrace, methodName, kitId, used, objects);
-    }
-
-    @Override
-    public void onKitApiCalled(String methodName, int kitId, Boolean used, Object... objects) {
-        onKitApiCalled(Thread.currentThread().getStackTrace(), methodName, kitId, used, objects);
-    }
-
-    private void onKitApiCalled(StackTraceElement[] stackTrace, final String methodName, final int kitId, final boolean used, Object... objects) {
-        String invokingApiMethodName = null;
-        String kitManagerMethodName = null;
-        boolean foundInternal = false;
-        boolean foundExternal = false;
+    public void onKitApiCalled(final String invokingApiMethodName, final String kitManagerMethodName, final String methodName, final int kitId, final Boolean used, Object... objects) {
         final List<Object> objectList = new ArrayList<Object>();
         for (Object obj : objects) {
             objectList.add(obj);
         }
-        for (int i = 0; i < stackTrace.length; i++) {
-            if (!isExternalApiInvocation(stackTrace[i])) {
-                foundInternal = true;
-            }
-            if (foundInternal && !foundExternal) {
-                if (isExternalApiInvocation(stackTrace[i])) {
-                    invokingApiMethodName = getApiName(stackTrace[i - 1]);
-                    foundExternal = true;
-                }
-            }
-            if (stackTrace[i].getClassName().equals("com.mparticle.kits.KitManagerImpl")) {
-                kitManagerMethodName = getApiName(stackTrace[i]);
-            }
-        }
-        final String finalInvokingApiMethodName = invokingApiMethodName;
-        final String finalKitManagerMethodName = kitManagerMethodName;
         broadcast(new SdkListenerRunnable() {
             @Override
             public void run(SdkListener listener) {
-                listener.onKitApiCalled(kitId, methodName, finalInvokingApiMethodName, finalKitManagerMethodName, objectList, used);
+                listener.onKitApiCalled(kitId, methodName, invokingApiMethodName, kitManagerMethodName, objectList, used != null && used);
             }
         });
     }
 
-
     @Override
     public void onCompositeObjects(final Object child, final Object parent) {
         broadcast(new SdkGraphListenerRunnable() {
@@ -318,11 +278,6 @@ public class InternalListenerManager implements InternalListener {
     }
 
 
-    private String getApiName(StackTraceElement element) {
-        String classNameString = getClassName(element.getClassName(), element.getMethodName());
-        return getApiFormattedName(classNameString, element.getMethodName());
-    }
-
     public static String getApiFormattedName(String className, String methodName) {
         return new StringBuilder()
                 .append(className)
@@ -332,44 +287,6 @@ public class InternalListenerManager implements InternalListener {
                 .toString();
     }
 
-    private String getClassName(String className, String methodName) {
-        String[] packageNames = className.split("\\.");
-        String simpleClassName = packageNames[packageNames.length - 1];
-        if (isObfuscated(simpleClassName)) {
-            try {
-                List<Class> superClasses = new ArrayList<Class>();
-                Class clazz = Class.forName(className);  // nosemgrep
-                superClasses.add(clazz.getSuperclass());
-                for (Class interfce : clazz.getInterfaces()) {
-                    superClasses.add(interfce);
-                }
-                for (Class superClass : superClasses) {
-                    for (Method method : superClass.getMethods()) {
-                        if (method.getName().equals(methodName)) {
-                            String superClassName = getClassName(superClass.getName(), methodName);
-                            if (!isObfuscated(superClassName)) {
-                                return superClassName;
-                            }
-                        }
-                    }
-                }
-            } catch (ClassNotFoundException e) {
-                e.printStackTrace();
-            }
-        }
-        return simpleClassName;
-    }
-
-    private boolean isObfuscated(@NonNull String className) {
-        return Character.isLowerCase(className.toCharArray()[0]) && className.length() <= 3;
-    }
-
-    private boolean isExternalApiInvocation(StackTraceElement element) {
-        return !element.getClassName().startsWith("com.mparticle") ||
-                (element.getClassName().startsWith(context.getApplicationContext().getPackageName()) &&
-                        context.getApplicationContext().getPackageName().length() > 1);
-    }
-
     private boolean hasListeners() {
         return instance.sdkListeners.size() > 0 || instance.graphListeners.size() > 0;
     }
@@ -14,6 +14,14 @@ public abstract class BaseNetworkConnection {
 
     public abstract MPConnection makeUrlRequest(MParticleBaseClientImpl.Endpoint endpoint, MPConnection connection, String payload, boolean identity) throws IOException;
 
+    /**
+     * Make a request whose payload has already been UTF-8 encoded, such as one which was also signed.
+     * Subclasses should override this to write the bytes directly.
+     */
+    public MPConnection makeEncodedUrlRequest(MParticleBaseClientImpl.Endpoint endpoint, MPConnection connection, byte[] encodedPayload, boolean identity) throws IOException {
+        return makeUrlRequest(endpoint, connection, encodedPayload == null ? null : new String(encodedPayload, "UTF-8"), identity);
+    }
+
     protected BaseNetworkConnection(Context context) {
         this.mPreferences = context.getSharedPreferences(Constants.PREFS_FILE, Context.MODE_PRIVATE);
     }
@@ -0,0 +1,26 @@
+package com.mparticle.networking;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Opens the connections used for every mParticle network request, allowing an application to
+ * route them through its own HTTP stack and connection pool, see {@link NetworkOptions.Builder#setTransport(MPTransport)}.
+ * <p></p>
+ * The SDK still signs, compresses, throttles and pins each request through the returned
+ * {@link MPConnection}. If {@link MPConnection#isHttps()} returns true,
+ * {@link MPConnection#setSSLSocketFactory(javax.net.ssl.SSLSocketFactory)} is called with the pinned
+ * socket factory, which the connection must use unless pinning has been disabled.
+ */
+public interface MPTransport {
+
+    /**
+     * Open a connection to the given URL. This is called on an SDK worker thread.
+     *
+     * @param url the URL, whose full form is given by {@link MPUrl#toString()}
+     * @return a connection whose {@link MPConnection#getURL()} returns url
+     */
+    @NonNull
+    MPConnection openConnection(@NonNull MPUrl url) throws IOException;
+}
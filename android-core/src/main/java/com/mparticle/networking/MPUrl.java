@@ -10,6 +10,7 @@ public abstract class MPUrl {
 
     private static UrlFactory mpUrlFactory = null;
     private MPUrl defaultUrl;
+    private MPTransport transport;
 
     static void setMPUrlFactory(UrlFactory urlConstructor) {
         mpUrlFactory = urlConstructor;
@@ -61,6 +62,20 @@ public abstract class MPUrl {
         return this;
     }
 
+    /**
+     * returns the transport which should open connections to this URL, or null if the SDK should
+     * open them itself
+     */
+    @Nullable
+    MPTransport getTransport() {
+        return transport;
+    }
+
+    MPUrl setTransport(@Nullable MPTransport transport) {
+        this.transport = transport;
+        return this;
+    }
+
     interface UrlFactory {
         MPUrl getInstance(String url);
     }
@@ -18,6 +18,10 @@ class MPUrlImpl extends MPUrl {
 
     @Override
     public MPConnection openConnection() throws IOException {
+        MPTransport transport = getTransport();
+        if (transport != null) {
+            return transport.openConnection(this);
+        }
         return new MPConnectionImpl((HttpURLConnection) url.openConnection(), this);
     }
 
@@ -69,6 +69,10 @@ public class MParticleBaseClientImpl implements MParticleBaseClient {
         return mRequestHandler.makeUrlRequest(endpoint, connection, payload, identity);
     }
 
+    public MPConnection makeEncodedUrlRequest(Endpoint endpoint, MPConnection connection, byte[] encodedPayload, boolean identity) throws IOException {
+        return mRequestHandler.makeEncodedUrlRequest(endpoint, connection, encodedPayload, identity);
+    }
+
     protected String getHeaderDateString() {
         SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
         return format.format(new Date());
@@ -89,6 +93,12 @@ public class MParticleBaseClientImpl implements MParticleBaseClient {
         return MPUtility.hmacSha256Encode(apiSecret, hashString.toString());
     }
 
+    protected String getHeaderHashString(MPConnection request, String date, byte[] encodedMessage, String apiSecret) throws NoSuchAlgorithmException, InvalidKeyException, UnsupportedEncodingException {
+        String method = request.getRequestMethod();
+        String path = request.getURL().getDefaultUrl().getFile();
+        return MPUtility.hmacSha256Encode(apiSecret, method + "\n" + date + "\n" + path, encodedMessage);
+    }
+
     public long getNextRequestTime(Endpoint endpoint) {
         return mPreferences.getLong(endpoint.name() + ":" + Constants.PrefKeys.NEXT_REQUEST_TIME, 0);
     }
@@ -112,6 +122,16 @@ public class MParticleBaseClientImpl implements MParticleBaseClient {
     }
 
     protected MPUrl getUrl(Endpoint endpoint, @Nullable String identityPath,HashMap<String, String> audienceQueryParams, @Nullable UploadSettings uploadSettings) throws MalformedURLException {
+        MPUrl url = buildUrl(endpoint, identityPath, audienceQueryParams, uploadSettings);
+        // the transport is not persisted with an upload's settings, so it always comes from the current NetworkOptions
+        NetworkOptions networkOptions = mConfigManager.getNetworkOptions();
+        if (url != null && networkOptions != null) {
+            url.setTransport(networkOptions.getTransport());
+        }
+        return url;
+    }
+
+    private MPUrl buildUrl(Endpoint endpoint, @Nullable String identityPath,HashMap<String, String> audienceQueryParams, @Nullable UploadSettings uploadSettings) throws MalformedURLException {
         NetworkOptions networkOptions = uploadSettings == null ? mConfigManager.getNetworkOptions() : uploadSettings.getNetworkOptions();
         DomainMapping domainMapping = networkOptions.getDomain(endpoint);
         String url = NetworkOptionsManager.getDefaultUrl(endpoint);
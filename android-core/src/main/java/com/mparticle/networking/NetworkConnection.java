@@ -13,16 +13,21 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 
@@ -30,9 +35,21 @@ public class NetworkConnection extends BaseNetworkConnection {
     public static final int HTTP_TOO_MANY_REQUESTS = 429;
 
     private ConfigManager mConfigManager;
-    private SSLSocketFactory mSocketFactory;
     private boolean alreadyWarned;
 
+    /**
+     * The pinned socket factory is shared by every client, so that they share one TLS session
+     * cache. It is rebuilt only when the pinned certificates change. The certificates are only
+     * compared when the NetworkOptions instance changes, since NetworkOptions are immutable once built.
+     */
+    private static SSLSocketFactory sSocketFactory;
+    private static String sSocketFactoryCertificates;
+    private static NetworkOptions sSocketFactoryNetworkOptions;
+    private static final AtomicInteger sPinnedRequests = new AtomicInteger();
+    private static final AtomicInteger sPinnedConnections = new AtomicInteger();
+    static final int TLS_SESSION_CACHE_SIZE = 16;
+    static final int TLS_SESSION_TIMEOUT_SECONDS = 60 * 60 * 24;
+
     /**
      * Default throttle time - in the worst case scenario if the server is busy, the soonest
      * the SDK will attempt to contact the server again will be after this 2 hour window.
@@ -47,12 +64,18 @@ public class NetworkConnection extends BaseNetworkConnection {
 
     @Override
     public MPConnection makeUrlRequest(MParticleBaseClientImpl.Endpoint endpoint, MPConnection connection, String payload, boolean identity) throws IOException {
+        return makeEncodedUrlRequest(endpoint, connection, payload == null ? null : payload.getBytes("UTF-8"), identity);
+    }
+
+    @Override
+    public MPConnection makeEncodedUrlRequest(MParticleBaseClientImpl.Endpoint endpoint, MPConnection connection, byte[] payload, boolean identity) throws IOException {
         try {
 
             //Gingerbread seems to dislike pinning w/ godaddy. Being that GB is near-dead anyway, just disable pinning for it.
             if (isPostGingerBread() && connection.isHttps() && !shouldDisablePinning()) {
                 try {
                     connection.setSSLSocketFactory(getSocketFactory());
+                    sPinnedRequests.incrementAndGet();
                 } catch (Exception e) {
                     Logger.error("Error occurred while setting SSL socket : " + e);
                 }
@@ -61,7 +84,7 @@ public class NetworkConnection extends BaseNetworkConnection {
             if (payload != null) {
                 OutputStream zos = getOutputStream(connection);
                 try {
-                    zos.write(payload.getBytes());
+                    zos.write(payload);
                 } finally {
                     zos.close();
                 }
@@ -95,31 +118,127 @@ public class NetworkConnection extends BaseNetworkConnection {
      * Custom socket factory used for certificate pinning.
      */
     protected SSLSocketFactory getSocketFactory() throws Exception {
-        if (mSocketFactory == null) {
-            String keyStoreType = KeyStore.getDefaultType();
-            KeyStore keyStore = KeyStore.getInstance(keyStoreType);
-            keyStore.load(null, null);
-
-            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            NetworkOptions networkOptions = mConfigManager.getNetworkOptions();
-            List<DomainMapping> domainMappingList = networkOptions.getDomainMappings();
-            Set<com.mparticle.networking.Certificate> domainMappingSet = new HashSet<>(NetworkOptionsManager.getDefaultCertificates());
-            for (DomainMapping domainMapping : domainMappingList) {
-                domainMappingSet.addAll(domainMapping.getCertificates());
+        NetworkOptions networkOptions = mConfigManager.getNetworkOptions();
+        synchronized (NetworkConnection.class) {
+            if (sSocketFactory != null && networkOptions == sSocketFactoryNetworkOptions) {
+                return sSocketFactory;
             }
-            for (com.mparticle.networking.Certificate certificate : domainMappingSet) {
-                keyStore.setCertificateEntry(certificate.getAlias(), generateCertificate(cf, certificate.getCertificate()));
+            TreeMap<String, String> certificatesByValue = getCertificatesByValue(networkOptions);
+            String certificatesKey = certificatesByValue.toString();
+            if (sSocketFactory == null || !certificatesKey.equals(sSocketFactoryCertificates)) {
+                sSocketFactory = createSocketFactory(certificatesByValue);
+                sSocketFactoryCertificates = certificatesKey;
             }
-            String tmfAlgorithm = TrustManagerFactory.getDefaultAlgorithm();
-            TrustManagerFactory tmf = TrustManagerFactory.getInstance(tmfAlgorithm);
-            tmf.init(keyStore);
+            sSocketFactoryNetworkOptions = networkOptions;
+            return sSocketFactory;
+        }
+    }
+
+    private static TreeMap<String, String> getCertificatesByValue(NetworkOptions networkOptions) {
+        List<com.mparticle.networking.Certificate> certificates = new ArrayList<>(NetworkOptionsManager.getDefaultCertificates());
+        for (DomainMapping domainMapping : networkOptions.getDomainMappings()) {
+            certificates.addAll(domainMapping.getCertificates());
+        }
+        TreeMap<String, String> certificatesByValue = new TreeMap<>();
+        for (com.mparticle.networking.Certificate certificate : certificates) {
+            certificatesByValue.put(certificate.getCertificate(), certificate.getAlias());
+        }
+        return certificatesByValue;
+    }
+
+    private static SSLSocketFactory createSocketFactory(Map<String, String> certificates) throws Exception {
+        String keyStoreType = KeyStore.getDefaultType();
+        KeyStore keyStore = KeyStore.getInstance(keyStoreType);
+        keyStore.load(null, null);
+
+        CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        for (Map.Entry<String, String> certificate : certificates.entrySet()) {
+            keyStore.setCertificateEntry(certificate.getValue(), generateCertificate(cf, certificate.getKey()));
+        }
+        String tmfAlgorithm = TrustManagerFactory.getDefaultAlgorithm();
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(tmfAlgorithm);
+        tmf.init(keyStore);
+
+        SSLContext context = SSLContext.getInstance("TLS");  // nosemgrep
+        context.init(null, tmf.getTrustManagers(), null);
+        //allow handshakes to be abbreviated by resuming sessions across connections and upload cycles
+        SSLSessionContext sessionContext = context.getClientSessionContext();
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+            sessionContext.setSessionTimeout(TLS_SESSION_TIMEOUT_SECONDS);
+        }
+        return new CountingSocketFactory(context.getSocketFactory());
+    }
+
+    /**
+     * The number of requests made, across all clients, over a pinned connection.
+     */
+    public static int getPinnedRequestCount() {
+        return sPinnedRequests.get();
+    }
 
-            SSLContext context = SSLContext.getInstance("TLS");  // nosemgrep
-            context.init(null, tmf.getTrustManagers(), null);
-            mSocketFactory = context.getSocketFactory();
+    /**
+     * The number of pinned connections opened, across all clients. Requests beyond this number
+     * reused a pooled connection.
+     */
+    public static int getPinnedConnectionCount() {
+        return sPinnedConnections.get();
+    }
+
+    /**
+     * Counts the sockets created, so that connection reuse can be measured.
+     */
+    private static class CountingSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+
+        CountingSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        private Socket count(Socket socket) {
+            sPinnedConnections.incrementAndGet();
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return count(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return count(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return count(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return count(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return count(delegate.createSocket(host, port));
+        }
 
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return count(delegate.createSocket(address, port, localAddress, localPort));
         }
-        return mSocketFactory;
     }
 
 
@@ -26,6 +26,7 @@ public class NetworkOptions {
     Map<Endpoint, DomainMapping> domainMappings = new HashMap<Endpoint, DomainMapping>();
     boolean pinningDisabledInDevelopment = false;
     boolean pinningDisabled = false;
+    MPTransport transport;
 
     private NetworkOptions() {
     }
@@ -41,6 +42,7 @@ public class NetworkOptions {
         if (builder.pinningDisabled != null) {
             pinningDisabled = builder.pinningDisabled;
         }
+        transport = builder.transport;
     }
 
     @NonNull
@@ -103,6 +105,15 @@ public class NetworkOptions {
         return pinningDisabled;
     }
 
+    /**
+     * The transport used to open connections, or null if the SDK opens its own. The transport is
+     * not included in {@link #toJson()}.
+     */
+    @Nullable
+    public MPTransport getTransport() {
+        return transport;
+    }
+
     DomainMapping getDomain(Endpoint endpoint) {
         return domainMappings.get(endpoint);
     }
@@ -134,6 +145,7 @@ public class NetworkOptions {
         private Map<Endpoint, DomainMapping> domainMappings = new HashMap<Endpoint, DomainMapping>();
         private Boolean pinningDisabledInDevelopment;
         private Boolean pinningDisabled;
+        private MPTransport transport;
 
         private Builder() {
         }
@@ -181,6 +193,19 @@ public class NetworkOptions {
             return this;
         }
 
+        /**
+         * Route the SDK's requests through an HTTP stack provided by the application, for example
+         * to share its connection pool. By default, the SDK opens its own connections.
+         *
+         * @param transport the transport, or null to use the SDK's own
+         * @return the instance of the builder, for chaining calls
+         */
+        @NonNull
+        public Builder setTransport(@Nullable MPTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
         @NonNull
         public NetworkOptions build() {
             return new NetworkOptions(this);
@@ -606,6 +606,7 @@ object Constants {
             const val IDENTITY_CONNECTION_TIMEOUT: String = "mp::connection:timeout:identity"
             const val NETWORK_OPTIONS: String = "mp::network:options"
             const val UPLOAD_INTERVAL: String = "mp::uploadInterval"
+            const val UPLOAD_CONCURRENCY: String = "mp::uploadConcurrency"
             const val SESSION_TIMEOUT: String = "mp::sessionTimeout"
             const val REPORT_UNCAUGHT_EXCEPTIONS: String = "mp::reportUncaughtExceptions"
             const val ENVIRONMENT: String = "mp::environment"
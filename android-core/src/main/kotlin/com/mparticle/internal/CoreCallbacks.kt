@@ -45,8 +45,13 @@ interface CoreCallbacks {
         fun kitExcluded(kitId: Int, reason: String?)
 
         fun kitStarted(kitId: Int)
-        fun onKitApiCalled(kitId: Int, used: Boolean?, vararg objects: Any?)
-        fun onKitApiCalled(methodName: String?, kitId: Int, used: Boolean?, vararg objects: Any?)
+
+        /**
+         * Whether [onKitApiCalled] reports anywhere. Check this before building its arguments.
+         */
+        fun isEnabled(): Boolean
+
+        fun onKitApiCalled(invokingApiMethodName: String?, kitManagerMethodName: String?, methodName: String?, kitId: Int, used: Boolean?, vararg objects: Any?)
 
         companion object {
             @JvmField
@@ -55,8 +60,8 @@ interface CoreCallbacks {
                 override fun kitConfigReceived(kitId: Int, configuration: String?) {}
                 override fun kitExcluded(kitId: Int, reason: String?) {}
                 override fun kitStarted(kitId: Int) {}
-                override fun onKitApiCalled(kitId: Int, used: Boolean?, vararg objects: Any?) {}
-                override fun onKitApiCalled(methodName: String?, kitId: Int, used: Boolean?, vararg objects: Any?) {}
+                override fun isEnabled() = false
+                override fun onKitApiCalled(invokingApiMethodName: String?, kitManagerMethodName: String?, methodName: String?, kitId: Int, used: Boolean?, vararg objects: Any?) {}
             }
         }
     }
@@ -1,6 +1,8 @@
 package com.mparticle.networking;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import androidx.annotation.NonNull;
@@ -67,4 +69,32 @@ public class MParticleBaseClientImplTest {
         assertTrue(getSocketFactoryCalled[0]);
         assertTrue(writeCalled[0]);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSocketFactorySharedAcrossConnections() throws Exception {
+        ConfigManager mockConfigManager = Mockito.mock(ConfigManager.class);
+        Mockito.when(mockConfigManager.getNetworkOptions()).thenReturn(NetworkOptions.builder().build());
+        NetworkConnection eventsConnection = new NetworkConnection(mockConfigManager, new MockSharedPreferences());
+        NetworkConnection identityConnection = new NetworkConnection(mockConfigManager, new MockSharedPreferences());
+        SSLSocketFactory socketFactory = eventsConnection.getSocketFactory();
+        assertNotNull(socketFactory);
+        assertSame(socketFactory, eventsConnection.getSocketFactory());
+        assertSame(socketFactory, identityConnection.getSocketFactory());
+    }
+
+    @Test
+    public void testTransportOpensConnections() throws Exception {
+        final MPConnection mockConnection = Mockito.mock(MPConnection.class);
+        final MPUrl[] openedUrl = {null};
+        MPTransport transport = url -> {
+            openedUrl[0] = url;
+            return mockConnection;
+        };
+        NetworkOptions networkOptions = NetworkOptions.builder().setTransport(transport).build();
+        assertSame(transport, networkOptions.getTransport());
+
+        MPUrl url = new MPUrlImpl("https://nativesdks.mparticle.com/v2/key/events").setTransport(networkOptions.getTransport());
+        assertSame(mockConnection, url.openConnection());
+        assertSame(url, openedUrl[0]);
+    }
+}
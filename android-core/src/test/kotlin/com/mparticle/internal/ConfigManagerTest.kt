@@ -354,6 +354,36 @@ class ConfigManagerTest {
         Assert.assertTrue(manager.shouldTrigger(message))
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun testShouldTriggerOnMessageMatch() {
+        manager.updateConfig(JSONObject(sampleConfig))
+        val message = BaseMPMessage.Builder("X").build(InternalSession(), null, 1)
+        Assert.assertFalse(manager.shouldTrigger(message))
+        message.put("eh", false)
+        Assert.assertFalse(manager.shouldTrigger(message))
+        message.put("eh", true)
+        Assert.assertTrue(manager.shouldTrigger(message))
+        message.put("eh", "TRUE")
+        Assert.assertTrue(manager.shouldTrigger(message))
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testShouldTriggerComparesMessageMatchesAsStrings() {
+        manager.updateConfig(JSONObject().put("tri", JSONObject().put("mm", JSONArray().put(JSONObject()))))
+        Assert.assertTrue(manager.shouldTrigger(BaseMPMessage.Builder("X").build(InternalSession(), null, 1)))
+
+        manager.updateConfig(JSONObject().put("tri", JSONObject().put("mm", JSONArray().put(JSONObject().put("v", 1)))))
+        val message = BaseMPMessage.Builder("X").build(InternalSession(), null, 1)
+        message.put("v", 1.0)
+        Assert.assertFalse(manager.shouldTrigger(message))
+        message.put("v", "1")
+        Assert.assertTrue(manager.shouldTrigger(message))
+        message.put("v", 1)
+        Assert.assertTrue(manager.shouldTrigger(message))
+    }
+
     @Test
     @Throws(Exception::class)
     fun testGetMpid() {
@@ -309,10 +309,46 @@ class KitFrameworkWrapperTest {
         val event = Mockito.mock(MPEvent::class.java)
         wrapper.queueEvent(event)
         Assert.assertEquals(wrapper.eventQueue.peek(), event)
-        for (i in 0..49) {
+        for (i in 0 until ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY + 50) {
             wrapper.queueEvent(event)
         }
-        Assert.assertEquals(10, wrapper.eventQueue.size.toLong())
+        Assert.assertEquals(ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY, wrapper.eventQueue.size)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testQueueCapacityAndReplayOrder() {
+        val options = Mockito.mock(MParticleOptions::class.java)
+        Mockito.`when`(options.kitQueueCapacity).thenReturn(ConfigManager.MAX_KIT_QUEUE_CAPACITY)
+        val wrapper = KitFrameworkWrapper(
+            Mockito.mock(
+                Context::class.java
+            ),
+            Mockito.mock(ReportingManager::class.java),
+            Mockito.mock(ConfigManager::class.java),
+            Mockito.mock(AppStateManager::class.java),
+            true,
+            options
+        )
+        wrapper.kitsLoaded = false
+        val events = (0 until ConfigManager.MAX_KIT_QUEUE_CAPACITY + 5).map {
+            MPEvent.Builder("event $it").build()
+        }
+        events.forEach { wrapper.queueEvent(it) }
+        Assert.assertEquals(ConfigManager.MAX_KIT_QUEUE_CAPACITY, wrapper.eventQueue.size)
+        Assert.assertEquals(5, wrapper.droppedEvents)
+
+        val replayed = ArrayList<MPEvent>()
+        val mockKitManager = Mockito.mock(KitManager::class.java)
+        Mockito.doAnswer {
+            replayed.add(it.arguments[0] as MPEvent)
+            null
+        }.`when`(mockKitManager).logEvent(Mockito.any(MPEvent::class.java))
+        wrapper.setKitManager(mockKitManager)
+        wrapper.replayAndDisableQueue()
+        Assert.assertEquals(events.subList(0, ConfigManager.MAX_KIT_QUEUE_CAPACITY), replayed)
+        Assert.assertNull(wrapper.eventQueue)
+        Assert.assertEquals(0, wrapper.droppedEvents)
     }
 
     @Test
@@ -366,10 +402,10 @@ class KitFrameworkWrapperTest {
         val event = Mockito.mock(MPEvent::class.java)
         wrapper.logEvent(event)
         Assert.assertEquals(wrapper.eventQueue.peek(), event)
-        for (i in 0..49) {
+        for (i in 0 until ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY + 50) {
             wrapper.logEvent(event)
         }
-        Assert.assertEquals(10, wrapper.eventQueue.size.toLong())
+        Assert.assertEquals(ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY, wrapper.eventQueue.size)
         wrapper.kitsLoaded = true
         wrapper.logEvent(event)
         val mockKitManager = Mockito.mock(KitManager::class.java)
@@ -404,10 +440,10 @@ class KitFrameworkWrapperTest {
         val event = Mockito.mock(CommerceEvent::class.java)
         wrapper.logEvent(event)
         Assert.assertEquals(wrapper.eventQueue.peek(), event)
-        for (i in 0..49) {
+        for (i in 0 until ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY + 50) {
             wrapper.logEvent(event)
         }
-        Assert.assertEquals(10, wrapper.eventQueue.size.toLong())
+        Assert.assertEquals(ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY, wrapper.eventQueue.size)
         wrapper.kitsLoaded = true
         wrapper.logEvent(event)
         val mockKitManager = Mockito.mock(KitManager::class.java)
@@ -441,10 +477,10 @@ class KitFrameworkWrapperTest {
         val event = Mockito.mock(BaseEvent::class.java)
         wrapper.logEvent(event)
         Assert.assertEquals(wrapper.eventQueue.peek(), event)
-        for (i in 0..49) {
+        for (i in 0 until ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY + 50) {
             wrapper.logEvent(event)
         }
-        Assert.assertEquals(10, wrapper.eventQueue.size.toLong())
+        Assert.assertEquals(ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY, wrapper.eventQueue.size)
         wrapper.kitsLoaded = true
         wrapper.logEvent(event)
         val mockKitManager = Mockito.mock(KitManager::class.java)
@@ -479,10 +515,10 @@ class KitFrameworkWrapperTest {
         Mockito.`when`(event.isScreenEvent).thenReturn(true)
         wrapper.logScreen(event)
         Assert.assertEquals(wrapper.eventQueue.peek(), event)
-        for (i in 0..49) {
+        for (i in 0 until ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY + 50) {
             wrapper.logScreen(event)
         }
-        Assert.assertEquals(10, wrapper.eventQueue.size.toLong())
+        Assert.assertEquals(ConfigManager.DEFAULT_KIT_QUEUE_CAPACITY, wrapper.eventQueue.size)
         wrapper.kitsLoaded = true
         wrapper.logScreen(event)
         val mockKitManager = Mockito.mock(KitManager::class.java)
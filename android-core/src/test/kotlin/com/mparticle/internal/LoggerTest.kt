@@ -74,6 +74,48 @@ class LoggerTest {
         Assert.assertTrue(Logger.getLogHandler() is DefaultLogHandler)
     }
 
+    @Test
+    fun testMessageSupplierOnlyBuiltWhenLoggable() {
+        val called = BooleanArray(6)
+        var built = 0
+        Logger.setLogHandler(object : LogHandlerTest(called) {
+            override fun isADBLoggable(tag: String, logLevel: Int): Boolean {
+                return false
+            }
+        })
+        Logger.setMinLogLevel(MParticle.LogLevel.NONE, true)
+        Logger.debug { "testMessage ${++built}" }
+        Logger.verbose { "testMessage ${++built}" }
+        Assert.assertEquals(0, built)
+        assertTrueUpTo(0, called)
+
+        Logger.setLogHandler(LogHandlerTest(called))
+        Logger.debug { "testMessage ${++built}" }
+        Assert.assertEquals(1, built)
+        Assert.assertTrue(called[2])
+        Logger.setLogHandler(null)
+    }
+
+    @Test
+    fun testMessageSupplierReachesHandlerOverridingLog() {
+        val logged = ArrayList<String?>()
+        Logger.setLogHandler(object : LogHandlerTest(BooleanArray(6)) {
+            override fun isADBLoggable(tag: String, logLevel: Int): Boolean {
+                return false
+            }
+
+            override fun log(priority: MParticle.LogLevel, error: Throwable?, messages: String?) {
+                logged.add(messages)
+            }
+        })
+        Logger.setMinLogLevel(MParticle.LogLevel.NONE, true)
+        Logger.verbose("string message")
+        Logger.verbose { "supplied message" }
+        Logger.debug { "supplied debug message" }
+        Assert.assertEquals(listOf("string message", "supplied message", "supplied debug message"), logged)
+        Logger.setLogHandler(null)
+    }
+
     private fun assertTrueUpTo(limit: Int, called: BooleanArray) {
         for (i in called.indices) {
             if (i < limit) {
@@ -84,7 +126,7 @@ class LoggerTest {
         }
     }
 
-    internal inner class LogHandlerTest(private val called: BooleanArray) : AbstractLogHandler() {
+    internal open inner class LogHandlerTest(private val called: BooleanArray) : AbstractLogHandler() {
         override fun isADBLoggable(tag: String, logLevel: Int): Boolean {
             return true
         }
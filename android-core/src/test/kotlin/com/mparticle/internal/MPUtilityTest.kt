@@ -253,6 +253,20 @@ class MPUtilityTest {
         return list
     }
 
+    @Test
+    fun testHmacSha256EncodeBytesMatchesString() {
+        val prefix = "POST\nThu, 01 Jan 2026 00:00:00 GMT\n/v2/key/events"
+        val message = "{\"msgs\":[{\"dt\":\"e\",\"n\":\"caf\u00e9 \u2603\"}]}"
+        Assert.assertEquals(
+            MPUtility.hmacSha256Encode("secret", prefix + message),
+            MPUtility.hmacSha256Encode("secret", prefix, message.toByteArray(Charsets.UTF_8))
+        )
+        Assert.assertEquals(
+            MPUtility.hmacSha256Encode("secret", prefix),
+            MPUtility.hmacSha256Encode("secret", prefix, null)
+        )
+    }
+
     @Test
     fun testNumberDetection() {
         Assert.assertEquals(12, MPUtility.toNumberOrString("12"))
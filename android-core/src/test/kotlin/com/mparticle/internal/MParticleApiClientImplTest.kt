@@ -180,6 +180,17 @@ class MParticleApiClientImplTest {
         Assert.assertNotNull(e)
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun testConfigRequestIntervalHonorsMaxAge() {
+        setup()
+        Assert.assertEquals(10 * 60 * 1000L, client.configRequestInterval)
+        Mockito.`when`(configManager.configMaxAge).thenReturn(60)
+        Assert.assertEquals(60 * 1000L, client.configRequestInterval)
+        Mockito.`when`(configManager.configMaxAge).thenReturn(60 * 60)
+        Assert.assertEquals(10 * 60 * 1000L, client.configRequestInterval)
+    }
+
     @Test
     @PrepareForTest(URL::class, MParticleApiClientImpl::class, MPUtility::class)
     @Throws(
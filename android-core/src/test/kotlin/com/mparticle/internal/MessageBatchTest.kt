@@ -146,6 +146,83 @@ class MessageBatchTest {
         )
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun testSerializedMessages() {
+        val mockMp = Mockito.mock(MParticle::class.java)
+        Mockito.`when`(mockMp.environment).thenReturn(MParticle.Environment.Development)
+        MParticle.setInstance(mockMp)
+        val manager = ConfigManager(
+            MockContext(),
+            MParticle.Environment.Production,
+            "some api key",
+            "some api secret",
+            null,
+            null,
+            null,
+            null,
+            null,
+            null
+        )
+        val batchId = BatchId(manager.mpid, null, null, null)
+        val batch = MessageBatch.create(true, manager, JSONObject(), batchId)
+        batch.addMessage(JSONObject().put("dt", "e").put("n", "first").toString())
+        batch.addMessage(
+            JSONObject().put("dt", "uac").put("ua", JSONObject().put("foo", "bar")).toString()
+        )
+        batch.addMessage(JSONObject().put("dt", "e").put("n", "third").toString())
+
+        val userAttributes = batch.removeFromMessages("uac", "ua", JSONObject::class.java)
+        Assert.assertEquals("bar", userAttributes?.getString("foo"))
+        Assert.assertNull(batch.removeFromMessages("uic", "ui", org.json.JSONArray::class.java))
+
+        val serialized = JSONObject(batch.toString())
+        Assert.assertEquals(batch.getString("id"), serialized.getString("id"))
+        val messages = serialized.getJSONArray("msgs")
+        Assert.assertEquals(3, messages.length())
+        Assert.assertEquals("first", messages.getJSONObject(0).getString("n"))
+        Assert.assertFalse(messages.getJSONObject(1).has("ua"))
+        Assert.assertEquals("third", messages.getJSONObject(2).getString("n"))
+
+        // parsing the messages must not change the serialized output
+        Assert.assertEquals(3, batch.messages?.length())
+        Assert.assertEquals(3, JSONObject(batch.toString()).getJSONArray("msgs").length())
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testSerializedMessagesVisibleAsJSONObject() {
+        val mockMp = Mockito.mock(MParticle::class.java)
+        Mockito.`when`(mockMp.environment).thenReturn(MParticle.Environment.Development)
+        MParticle.setInstance(mockMp)
+        val manager = ConfigManager(
+            MockContext(),
+            MParticle.Environment.Production,
+            "some api key",
+            "some api secret",
+            null,
+            null,
+            null,
+            null,
+            null,
+            null
+        )
+        val batchId = BatchId(manager.mpid, null, null, null)
+        var batch = MessageBatch.create(true, manager, JSONObject(), batchId)
+        batch.addMessage(JSONObject().put("dt", "e").put("n", "first").toString())
+        Assert.assertEquals(1, JSONObject(batch.toString(2)).getJSONArray("msgs").length())
+
+        batch = MessageBatch.create(true, manager, JSONObject(), batchId)
+        batch.addMessage(JSONObject().put("dt", "e").put("n", "first").toString())
+        Assert.assertTrue(batch.has("msgs"))
+        Assert.assertEquals("first", batch.optJSONArray("msgs")?.getJSONObject(0)?.getString("n"))
+
+        batch = MessageBatch.create(true, manager, JSONObject(), batchId)
+        batch.addMessage(JSONObject().put("dt", "e").put("n", "first").toString())
+        Assert.assertEquals(1, batch.getJSONArray("msgs").length())
+        Assert.assertEquals(1, JSONObject(batch.toString()).getJSONArray("msgs").length())
+    }
+
     @Test
     @Throws(Exception::class)
     fun testBachIdReadyMessage() {
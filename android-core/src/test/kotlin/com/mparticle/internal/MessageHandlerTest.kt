@@ -7,6 +7,7 @@ import com.mparticle.internal.Constants.MessageKey
 import com.mparticle.internal.database.MPDatabase
 import com.mparticle.internal.database.UploadSettings
 import com.mparticle.internal.database.services.MParticleDBManager
+import com.mparticle.internal.messages.BaseMPMessage
 import com.mparticle.internal.messages.MPAliasMessage
 import com.mparticle.mock.MockContext
 import com.mparticle.networking.NetworkOptions
@@ -19,7 +20,10 @@ import org.junit.Assert
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
+import org.mockito.Answers
 import org.mockito.Mockito
+import org.powermock.api.mockito.PowerMockito
+import org.powermock.core.classloader.annotations.PrepareForTest
 import org.powermock.modules.junit4.PowerMockRunner
 
 @RunWith(PowerMockRunner::class)
@@ -83,4 +87,92 @@ class MessageHandlerTest {
         insertedAliasRequest.value?.remove(MessageKey.REQUEST_ID)
         TestingUtils.assertJsonEqual(aliasMessage, insertedAliasRequest.value)
     }
+
+    @Test
+    @PrepareForTest(MessageManager::class, MPUtility::class)
+    @Throws(Exception::class)
+    fun testStoreMessagesInOneTransaction() {
+        PowerMockito.mockStatic(MPUtility::class.java, Answers.RETURNS_MOCKS.get())
+        val database = Mockito.mock(MPDatabase::class.java)
+        Mockito.`when`(mParticleDatabaseManager.database).thenReturn(database)
+        var queued = 0
+        val batchingHandler = object : MessageHandler(
+            mMessageManager,
+            MockContext(),
+            mParticleDatabaseManager,
+            "dataplan1",
+            1
+        ) {
+            public override fun databaseAvailable(): Boolean {
+                return true
+            }
+
+            override fun hasQueuedMessages(what: Int): Boolean {
+                return what == STORE_MESSAGE && queued > 0
+            }
+        }
+        val session = InternalSession()
+        queued = 3
+        while (queued > 0) {
+            queued--
+            val message = Mockito.mock(Message::class.java)
+            message.what = MessageHandler.STORE_MESSAGE
+            message.obj = BaseMPMessage.Builder(Constants.MessageType.EVENT)
+                .name("event $queued")
+                .timestamp(1000L - queued)
+                .build(session, null, 1)
+            batchingHandler.handleMessageImpl(message)
+            if (queued > 0) {
+                Mockito.verify(mParticleDatabaseManager, Mockito.never())
+                    .insertMessage(Mockito.anyString(), Mockito.any(), Mockito.anyString(), Mockito.anyInt(), Mockito.anyBoolean())
+            }
+        }
+        Mockito.verify(database, Mockito.times(1)).beginTransaction()
+        Mockito.verify(database, Mockito.times(1)).setTransactionSuccessful()
+        Mockito.verify(mParticleDatabaseManager, Mockito.times(3))
+            .insertMessage(Mockito.anyString(), Mockito.any(), Mockito.anyString(), Mockito.anyInt(), Mockito.eq(true))
+        val inOrder = Mockito.inOrder(database, mParticleDatabaseManager)
+        inOrder.verify(database, Mockito.times(1)).endTransaction()
+        inOrder.verify(mParticleDatabaseManager, Mockito.times(1)).onMessagesCommitted()
+        Mockito.verify(mParticleDatabaseManager, Mockito.times(1))
+            .updateSessionEndTime(Mockito.any(), Mockito.eq(1000L), Mockito.eq(0L))
+        Mockito.verify(mMessageManager, Mockito.times(3)).checkForTrigger(Mockito.any())
+    }
+
+    @Test
+    @PrepareForTest(MessageManager::class, MPUtility::class)
+    @Throws(Exception::class)
+    fun testStorePendingMessagesBeforePostedRunnable() {
+        PowerMockito.mockStatic(MPUtility::class.java, Answers.RETURNS_MOCKS.get())
+        val database = Mockito.mock(MPDatabase::class.java)
+        Mockito.`when`(mParticleDatabaseManager.database).thenReturn(database)
+        val batchingHandler = object : MessageHandler(
+            mMessageManager,
+            MockContext(),
+            mParticleDatabaseManager,
+            "dataplan1",
+            1
+        ) {
+            public override fun databaseAvailable(): Boolean {
+                return true
+            }
+
+            override fun hasQueuedMessages(what: Int): Boolean {
+                return what == STORE_MESSAGE
+            }
+        }
+        val message = Mockito.mock(Message::class.java)
+        message.what = MessageHandler.STORE_MESSAGE
+        message.obj = BaseMPMessage.Builder(Constants.MessageType.EVENT)
+            .name("event")
+            .timestamp(1000L)
+            .build(InternalSession(), null, 1)
+        batchingHandler.handleMessageImpl(message)
+        Mockito.verify(mParticleDatabaseManager, Mockito.never())
+            .insertMessage(Mockito.anyString(), Mockito.any(), Mockito.anyString(), Mockito.anyInt(), Mockito.anyBoolean())
+        batchingHandler.onCallback()
+        Mockito.verify(mParticleDatabaseManager, Mockito.times(1))
+            .insertMessage(Mockito.anyString(), Mockito.any(), Mockito.anyString(), Mockito.anyInt(), Mockito.eq(true))
+        Mockito.verify(database, Mockito.times(1)).endTransaction()
+    }
 }
@@ -81,6 +81,7 @@ class MessageManagerTest {
     @Throws(Exception::class)
     fun testGetStateInfo() {
         PowerMockito.mockStatic(MPUtility::class.java, Answers.RETURNS_MOCKS.get())
+        MessageManager.invalidateDeviceState()
         val stateInfo = MessageManager.getStateInfo()
         Assert.assertNotNull(stateInfo.getLong(MessageKey.STATE_INFO_AVAILABLE_MEMORY))
         Assert.assertNotNull(stateInfo.getLong(MessageKey.STATE_INFO_TOTAL_MEMORY))
@@ -100,6 +101,22 @@ class MessageManagerTest {
         Assert.assertNotNull(stateInfo.getInt(MessageKey.STATE_INFO_NETWORK_TYPE))
     }
 
+    @Test
+    @PrepareForTest(MessageManager::class, MPUtility::class, Looper::class)
+    @Throws(Exception::class)
+    fun testGetStateInfoReusesDeviceState() {
+        PowerMockito.mockStatic(MPUtility::class.java, Answers.RETURNS_MOCKS.get())
+        MessageManager.invalidateDeviceState()
+        MessageManager.getStateInfo()
+        MessageManager.getStateInfo()
+        PowerMockito.verifyStatic(MPUtility::class.java, Mockito.times(1))
+        MPUtility.getAvailableInternalDisk(Mockito.any())
+        MessageManager.invalidateDeviceState()
+        MessageManager.getStateInfo()
+        PowerMockito.verifyStatic(MPUtility::class.java, Mockito.times(2))
+        MPUtility.getAvailableInternalDisk(Mockito.any())
+    }
+
     @Test
     @PrepareForTest(MessageManager::class, MPUtility::class, Looper::class)
     @Throws(Exception::class)
@@ -401,6 +401,82 @@ class UploadHandlerTest {
         Assert.assertEquals(100L, uploadHandler.messageDelay)
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun testPipelinedUploadsDeleteInOrder() {
+        val deletedUploads = ArrayList<Int>()
+        val database: MParticleDBManager = object : MParticleDBManager(MockContext()) {
+            override fun deleteUpload(id: Int): Int {
+                deletedUploads.add(id)
+                return id
+            }
+        }
+        val uploadHandler = UploadHandler(
+            MockContext(),
+            Mockito.mock(ConfigManager::class.java),
+            Mockito.mock(AppStateManager::class.java),
+            Mockito.mock(MessageManager::class.java),
+            database,
+            Mockito.mock(KitFrameworkWrapper::class.java)
+        )
+        val inFlight = java.util.concurrent.atomic.AtomicInteger()
+        val maxInFlight = java.util.concurrent.atomic.AtomicInteger()
+        val mockApiClient = Mockito.mock(MParticleApiClient::class.java)
+        Mockito.`when`(
+            mockApiClient.sendMessageBatch(
+                Mockito.any(String::class.java),
+                Mockito.any(UploadSettings::class.java)
+            )
+        ).thenAnswer { invocation ->
+            val current = inFlight.incrementAndGet()
+            maxInFlight.accumulateAndGet(current) { a, b -> Math.max(a, b) }
+            // finish out of order, later batches complete first
+            Thread.sleep(60L - (invocation.getArgument<String>(0).toInt() * 5))
+            inFlight.decrementAndGet()
+            if (invocation.getArgument<String>(0) == "4") 500 else 202
+        }
+        uploadHandler.setApiClient(mockApiClient)
+        val uploadSettings = UploadSettings("apiKey", "secret", NetworkOptions.builder().build(), "", "")
+        val readyUploads = (1..8).map { MParticleDBManager.ReadyUpload(it, false, it.toString(), uploadSettings) }
+
+        uploadHandler.uploadPipelined(readyUploads.iterator(), 3)
+
+        Assert.assertEquals(listOf(1, 2, 3, 5, 6, 7, 8), deletedUploads)
+        Assert.assertTrue(maxInFlight.get() in 2..3)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testConfigRevalidatedWhenUploadsFail() {
+        val uploadSettings = UploadSettings("apiKey", "secret", NetworkOptions.builder().build(), "", "")
+        val database: MParticleDBManager = object : MParticleDBManager(MockContext()) {
+            override fun cleanupUploadMessages() {}
+
+            override fun getReadyUploadIterator(): Iterator<ReadyUpload> {
+                return listOf(ReadyUpload(1, false, "1", uploadSettings)).iterator()
+            }
+        }
+        val uploadHandler = UploadHandler(
+            MockContext(),
+            Mockito.mock(ConfigManager::class.java),
+            Mockito.mock(AppStateManager::class.java),
+            Mockito.mock(MessageManager::class.java),
+            database,
+            Mockito.mock(KitFrameworkWrapper::class.java)
+        )
+        val mockApiClient = Mockito.mock(MParticleApiClient::class.java)
+        Mockito.`when`(
+            mockApiClient.sendMessageBatch(
+                Mockito.any(String::class.java),
+                Mockito.any(UploadSettings::class.java)
+            )
+        ).thenThrow(IOException("offline"))
+        uploadHandler.setApiClient(mockApiClient)
+
+        uploadHandler.upload()
+        Mockito.verify(mockApiClient, Mockito.times(1)).fetchConfig()
+    }
+
     internal inner class MockMParticleDBManager : MParticleDBManager(MockContext()) {
         var hasMessagesTrueCount = 0
         override fun hasMessagesForUpload(): Boolean {
@@ -63,6 +63,38 @@ class InternalListenerManagerTest {
         Assert.assertNull(manager)
     }
 
+    @Test
+    @PrepareForTest(MPUtility::class)
+    fun testKitApiCalledWithExplicitMethodNames() {
+        val mockContext = DevStateMockContext()
+        mockContext.isDebuggable = true
+        PowerMockito.mockStatic(MPUtility::class.java)
+        Mockito.`when`(MPUtility.isAppDebuggable(mockContext)).thenReturn(true)
+        val manager = InternalListenerManager.start(mockContext)
+        val calls = ArrayList<List<Any?>>()
+        val listener = object : SdkListener() {
+            override fun onKitApiCalled(
+                kitId: Int,
+                apiName: String,
+                invokingMethodName: String?,
+                kitManagerMethodName: String?,
+                objects: List<Any>,
+                used: Boolean
+            ) {
+                calls.add(listOf(kitId, apiName, invokingMethodName, kitManagerMethodName, objects, used))
+            }
+        }
+        manager?.addListener(listener)
+        InternalListenerManager.getListener()
+            .onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logEvent()", "logBaseEvent()", 5, null, "foo")
+        manager?.removeListener(listener)
+        Assert.assertEquals(1, calls.size)
+        Assert.assertEquals(
+            listOf(5, "logBaseEvent()", "MParticle.logEvent()", "KitManagerImpl.logEvent()", listOf("foo"), false),
+            calls[0]
+        )
+    }
+
     @Test
     fun assertAppDebuggable() {
         val context = DevStateMockContext()
@@ -42,32 +42,50 @@ public final class CommerceEventUtils {
         if (productAction == null) {
             return events;
         }
-        if (productAction.equalsIgnoreCase(Product.PURCHASE) || productAction.equalsIgnoreCase(Product.REFUND)) {
-            MPEvent.Builder plusOne = new MPEvent.Builder(String.format(PLUSONE_NAME, event.getProductAction()), MParticle.EventType.Transaction);
-            //Set all product action fields to attributes.
-            Map<String, String> attributes = new HashMap<String, String>();
-            //Start with the custom attributes then overwrite with action fields.
-            if (event.getCustomAttributeStrings() != null) {
-                attributes.putAll(event.getCustomAttributeStrings());
-            }
-            extractActionAttributes(event, attributes);
-            events.add(plusOne.customAttributes(attributes).shouldUploadEvent(event.isShouldUploadEvent()).build());
+        if (hasTotalEvent(event)) {
+            events.add(expandTotal(event));
         }
         List<Product> products = event.getProducts();
         if (products != null) {
+            String name = getProductItemName(event);
             for (int i = 0; i < products.size(); i++) {
-                MPEvent.Builder itemEvent = new MPEvent.Builder(String.format(ITEM_NAME, productAction), MParticle.EventType.Transaction);
-                Map<String, String> attributes = new HashMap<String, String>();
-                OnAttributeExtracted attributeExtracted = new StringAttributeExtractor(attributes);
-                extractProductFields(products.get(i), attributeExtracted);
-                extractProductAttributes(products.get(i), attributeExtracted);
-                extractTransactionId(event, attributeExtracted);
-                events.add(itemEvent.customAttributes(attributes).shouldUploadEvent(event.isShouldUploadEvent()).build());
+                events.add(expandProduct(event, name, products.get(i)));
             }
         }
         return events;
     }
 
+    static boolean hasTotalEvent(CommerceEvent event) {
+        String productAction = event.getProductAction();
+        return productAction != null && (productAction.equalsIgnoreCase(Product.PURCHASE) || productAction.equalsIgnoreCase(Product.REFUND));
+    }
+
+    static MPEvent expandTotal(CommerceEvent event) {
+        MPEvent.Builder plusOne = new MPEvent.Builder(String.format(PLUSONE_NAME, event.getProductAction()), MParticle.EventType.Transaction);
+        //Set all product action fields to attributes.
+        Map<String, String> attributes = new HashMap<String, String>();
+        //Start with the custom attributes then overwrite with action fields.
+        if (event.getCustomAttributeStrings() != null) {
+            attributes.putAll(event.getCustomAttributeStrings());
+        }
+        extractActionAttributes(event, attributes);
+        return plusOne.customAttributes(attributes).shouldUploadEvent(event.isShouldUploadEvent()).build();
+    }
+
+    static String getProductItemName(CommerceEvent event) {
+        return String.format(ITEM_NAME, event.getProductAction());
+    }
+
+    static MPEvent expandProduct(CommerceEvent event, String name, Product product) {
+        MPEvent.Builder itemEvent = new MPEvent.Builder(name, MParticle.EventType.Transaction);
+        Map<String, String> attributes = new HashMap<String, String>();
+        OnAttributeExtracted attributeExtracted = new StringAttributeExtractor(attributes);
+        extractProductFields(product, attributeExtracted);
+        extractProductAttributes(product, attributeExtracted);
+        extractTransactionId(event, attributeExtracted);
+        return itemEvent.customAttributes(attributes).shouldUploadEvent(event.isShouldUploadEvent()).build();
+    }
+
     public static void extractProductFields(Product product, Map<String, String> attributes) {
         extractProductFields(product, new StringAttributeExtractor(attributes));
     }
@@ -183,19 +201,28 @@ public final class CommerceEventUtils {
         }
         List<Promotion> promotions = event.getPromotions();
         if (promotions != null) {
+            String name = getPromotionItemName(event);
             for (int i = 0; i < promotions.size(); i++) {
-                MPEvent.Builder itemEvent = new MPEvent.Builder(String.format(ITEM_NAME, promotionAction), MParticle.EventType.Transaction);
-                Map<String, String> attributes = new HashMap<String, String>();
-                if (event.getCustomAttributeStrings() != null) {
-                    attributes.putAll(event.getCustomAttributeStrings());
-                }
-                extractPromotionAttributes(promotions.get(i), attributes);
-                events.add(itemEvent.customAttributes(attributes).shouldUploadEvent(event.isShouldUploadEvent()).build());
+                events.add(expandPromotion(event, name, promotions.get(i)));
             }
         }
         return events;
     }
 
+    static String getPromotionItemName(CommerceEvent event) {
+        return String.format(ITEM_NAME, event.getPromotionAction());
+    }
+
+    static MPEvent expandPromotion(CommerceEvent event, String name, Promotion promotion) {
+        MPEvent.Builder itemEvent = new MPEvent.Builder(name, MParticle.EventType.Transaction);
+        Map<String, String> attributes = new HashMap<String, String>();
+        if (event.getCustomAttributeStrings() != null) {
+            attributes.putAll(event.getCustomAttributeStrings());
+        }
+        extractPromotionAttributes(promotion, attributes);
+        return itemEvent.customAttributes(attributes).shouldUploadEvent(event.isShouldUploadEvent()).build();
+    }
+
     public static void extractPromotionAttributes(Promotion promotion, Map<String, String> attributes) {
         extractPromotionAttributes(promotion, new StringAttributeExtractor(attributes));
     }
@@ -0,0 +1,103 @@
+package com.mparticle.kits;
+
+import com.mparticle.MPEvent;
+import com.mparticle.commerce.CommerceEvent;
+import com.mparticle.commerce.Product;
+import com.mparticle.commerce.Promotion;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only, lazily materialized view of {@link CommerceEventUtils#expand(CommerceEvent)}.
+ * <p>
+ * Each expanded event is built the first time it is read, and then shared by every kit which
+ * reads it, so its custom attributes are made unmodifiable. Product impressions are rare, and are
+ * expanded together the first time any one of them is read.
+ */
+final class ExpandedCommerceEvents extends AbstractList<MPEvent> {
+    private final CommerceEvent event;
+    private final int totalCount;
+    private final int productCount;
+    private final int promotionCount;
+    private final int impressionCount;
+    private final MPEvent[] events;
+    private String productItemName;
+    private String promotionItemName;
+    private List<MPEvent> impressionEvents;
+
+    ExpandedCommerceEvents(CommerceEvent event) {
+        this.event = event;
+        boolean hasProductAction = event.getProductAction() != null;
+        totalCount = hasProductAction && CommerceEventUtils.hasTotalEvent(event) ? 1 : 0;
+        productCount = hasProductAction && event.getProducts() != null ? event.getProducts().size() : 0;
+        promotionCount = event.getPromotionAction() != null && event.getPromotions() != null ? event.getPromotions().size() : 0;
+        int impressions = 0;
+        if (event.getImpressions() != null) {
+            for (int i = 0; i < event.getImpressions().size(); i++) {
+                List<Product> products = event.getImpressions().get(i).getProducts();
+                if (products != null) {
+                    impressions += products.size();
+                }
+            }
+        }
+        impressionCount = impressions;
+        events = new MPEvent[totalCount + productCount + promotionCount + impressionCount];
+    }
+
+    @Override
+    public MPEvent get(int index) {
+        if (index < 0 || index >= events.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + events.length);
+        }
+        MPEvent expandedEvent = events[index];
+        if (expandedEvent == null) {
+            expandedEvent = readOnly(expand(index));
+            events[index] = expandedEvent;
+        }
+        return expandedEvent;
+    }
+
+    @Override
+    public int size() {
+        return events.length;
+    }
+
+    private MPEvent expand(int index) {
+        if (index < totalCount) {
+            return CommerceEventUtils.expandTotal(event);
+        }
+        index -= totalCount;
+        if (index < productCount) {
+            if (productItemName == null) {
+                productItemName = CommerceEventUtils.getProductItemName(event);
+            }
+            Product product = event.getProducts().get(index);
+            return CommerceEventUtils.expandProduct(event, productItemName, product);
+        }
+        index -= productCount;
+        if (index < promotionCount) {
+            if (promotionItemName == null) {
+                promotionItemName = CommerceEventUtils.getPromotionItemName(event);
+            }
+            Promotion promotion = event.getPromotions().get(index);
+            return CommerceEventUtils.expandPromotion(event, promotionItemName, promotion);
+        }
+        index -= promotionCount;
+        if (impressionEvents == null) {
+            impressionEvents = new ArrayList<MPEvent>(CommerceEventUtils.expandProductImpression(event));
+        }
+        return impressionEvents.get(index);
+    }
+
+    private static MPEvent readOnly(MPEvent event) {
+        Map<String, Object> attributes = event.getCustomAttributes();
+        if (attributes != null) {
+            event.setCustomAttributes(Collections.unmodifiableMap(attributes));
+        }
+        return event;
+    }
+}
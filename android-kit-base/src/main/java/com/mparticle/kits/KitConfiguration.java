@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class KitConfiguration {
 
@@ -84,6 +85,7 @@ public class KitConfiguration {
     protected Map<Integer, String> mAttributeRemoveFromUser = new HashMap<Integer, String>();
     protected Map<Integer, String> mAttributeSingleItemUser = new HashMap<Integer, String>();
     private Map<Integer, SparseBooleanArray> mCommerceEntityAttributeFilters = new HashMap<Integer, SparseBooleanArray>(0);
+    private volatile String mCommerceFilterSignature;
     protected Map<Integer, Boolean> mConsentForwardingRules = new HashMap<Integer, Boolean>();
     private int lowBracket = 0;
     private int highBracket = 101;
@@ -119,6 +121,7 @@ public class KitConfiguration {
     }
 
     public KitConfiguration applySideloadedKits(MPSideloadedFilters sideloadedFilters) {
+        mCommerceFilterSignature = null;
         Map<String, JSONObject> sideloadedFiltersMap = sideloadedFilters.getFilters();
         if (sideloadedFiltersMap.containsKey(KEY_ATTRIBUTE_VALUE_FILTERING)) {
             JSONObject avfShouldIncludeMatchesJSONObject = sideloadedFiltersMap.get(KEY_ATTRIBUTE_VALUE_FILTERING);
@@ -461,6 +464,7 @@ public class KitConfiguration {
     }
 
     public KitConfiguration parseConfiguration(JSONObject json) throws JSONException {
+        mCommerceFilterSignature = null;
         kitId = json.optInt(KEY_ID);
         if (json.has(KEY_ATTRIBUTE_VALUE_FILTERING)) {
             avfIsActive = true;
@@ -654,7 +658,7 @@ public class KitConfiguration {
         }
         Map<String, GDPRConsent> gdprConsentState = consentState.getGDPRConsentState();
         for (Map.Entry<String, GDPRConsent> gdprConsent : gdprConsentState.entrySet()) {
-            int consentPurposeHash = KitUtils.hashForFiltering("1" + gdprConsent.getKey());
+            int consentPurposeHash = KitUtils.hashForFiltering(1, gdprConsent.getKey());
             Boolean consented = mConsentForwardingRules.get(consentPurposeHash);
             if (consented != null && consented == gdprConsent.getValue().isConsented()) {
                 return true;
@@ -662,7 +666,7 @@ public class KitConfiguration {
         }
         CCPAConsent ccpaConsent = consentState.getCCPAConsentState();
         if (ccpaConsent != null) {
-            int consentPurposeHash = KitUtils.hashForFiltering("2" + Constants.MessageKey.CCPA_CONSENT_KEY);
+            int consentPurposeHash = KitUtils.hashForFiltering(2, Constants.MessageKey.CCPA_CONSENT_KEY);
             Boolean consented = mConsentForwardingRules.get(consentPurposeHash);
             if (consented != null && consented == ccpaConsent.isConsented()) {
                 return true;
@@ -671,12 +675,45 @@ public class KitConfiguration {
         return false;
     }
 
+    /**
+     * A key which is equal for any two configurations whose {@link #filterCommerceEvent(CommerceEvent)}
+     * would produce equivalent events, for a CommerceEvent that passes both configurations'
+     * event type filters. This allows work derived from the filtered event, such as its expansion
+     * into MPEvents, to be shared between kits.
+     */
+    String getCommerceFilterSignature() {
+        String signature = mCommerceFilterSignature;
+        if (signature == null) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(avfIsActive).append(',').append(avfShouldIncludeMatches).append(',')
+                    .append(avfHashedAttribute).append(',').append(avfHashedValue);
+            appendFilters(builder.append("|cea:"), mCommerceAttributeFilters);
+            appendFilters(builder.append("|ent:"), mCommerceEntityFilters);
+            if (mCommerceEntityAttributeFilters != null) {
+                for (Map.Entry<Integer, SparseBooleanArray> entry : new TreeMap<Integer, SparseBooleanArray>(mCommerceEntityAttributeFilters).entrySet()) {
+                    appendFilters(builder.append("|afa").append(entry.getKey()).append(':'), entry.getValue());
+                }
+            }
+            signature = builder.toString();
+            mCommerceFilterSignature = signature;
+        }
+        return signature;
+    }
+
+    private static void appendFilters(StringBuilder builder, SparseBooleanArray filters) {
+        if (filters == null) {
+            return;
+        }
+        for (int i = 0; i < filters.size(); i++) {
+            builder.append(filters.keyAt(i)).append('=').append(filters.valueAt(i) ? '1' : '0').append(';');
+        }
+    }
+
     protected CommerceEvent filterCommerceEvent(CommerceEvent event) {
         if (!shouldIncludeFromAttributeValueFiltering(event.getCustomAttributeStrings())) {
             return null;
         }
-        if (mTypeFilters != null &&
-                !mTypeFilters.get(KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event) + ""), true)) {
+        if (!shouldLogCommerceEventType(CommerceEventUtils.getEventType(event))) {
             return null;
         }
         CommerceEvent filteredEvent = new CommerceEvent.Builder(event).build();
@@ -778,16 +815,16 @@ public class KitConfiguration {
 
     public static final Map<String, Object> filterEventAttributes(MParticle.EventType eventType, String eventName, SparseBooleanArray filter, Map<String, Object> eventAttributes) {
         if (eventAttributes != null && eventAttributes.size() > 0 && filter != null && filter.size() > 0) {
-            String eventTypeStr = "0";
+            int eventTypeOrdinal = 0;
             if (eventType != null) {
-                eventTypeStr = eventType.ordinal() + "";
+                eventTypeOrdinal = eventType.ordinal();
             }
             Iterator<Map.Entry<String, Object>> attIterator = eventAttributes.entrySet().iterator();
             Map<String, Object> newAttributes = new HashMap<>();
             while (attIterator.hasNext()) {
                 Map.Entry<String, Object> entry = attIterator.next();
                 String key = entry.getKey();
-                int hash = KitUtils.hashForFiltering(eventTypeStr + eventName + key);
+                int hash = KitUtils.hashForFiltering(eventTypeOrdinal, eventName, key);
                 if (filter.get(hash, true)) {
                     newAttributes.put(key, entry.getValue());
                 }
@@ -843,7 +880,7 @@ public class KitConfiguration {
     }
 
     private CommerceEvent filterCommerceEventAttributes(CommerceEvent filteredEvent) {
-        String eventType = Integer.toString(CommerceEventUtils.getEventType(filteredEvent));
+        int eventType = CommerceEventUtils.getEventType(filteredEvent);
         if (mCommerceAttributeFilters == null || mCommerceAttributeFilters.size() == 0) {
             return filteredEvent;
         }
@@ -852,7 +889,7 @@ public class KitConfiguration {
         if (customAttributes != null) {
             Map<String, String> filteredCustomAttributes = new HashMap<String, String>(customAttributes.size());
             for (Map.Entry<String, String> entry : customAttributes.entrySet()) {
-                if (mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + entry.getKey()), true)) {
+                if (mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, entry.getKey()), true)) {
                     filteredCustomAttributes.put(entry.getKey(), entry.getValue());
                 }
             }
@@ -860,37 +897,37 @@ public class KitConfiguration {
         }
 
         if (filteredEvent.getCheckoutStep() != null &&
-                !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + CommerceEventUtils.Constants.ATT_ACTION_CHECKOUT_STEP), true)) {
+                !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, CommerceEventUtils.Constants.ATT_ACTION_CHECKOUT_STEP), true)) {
             builder.checkoutStep(null);
         }
         if (filteredEvent.getCheckoutOptions() != null &&
-                !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + CommerceEventUtils.Constants.ATT_ACTION_CHECKOUT_OPTIONS), true)) {
+                !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, CommerceEventUtils.Constants.ATT_ACTION_CHECKOUT_OPTIONS), true)) {
             builder.checkoutOptions(null);
         }
         TransactionAttributes attributes = filteredEvent.getTransactionAttributes();
         if (attributes != null) {
             if (attributes.getCouponCode() != null &&
-                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + CommerceEventUtils.Constants.ATT_TRANSACTION_COUPON_CODE), true)) {
+                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, CommerceEventUtils.Constants.ATT_TRANSACTION_COUPON_CODE), true)) {
                 attributes.setCouponCode(null);
             }
             if (attributes.getShipping() != null &&
-                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + CommerceEventUtils.Constants.ATT_SHIPPING), true)) {
+                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, CommerceEventUtils.Constants.ATT_SHIPPING), true)) {
                 attributes.setShipping(null);
             }
             if (attributes.getTax() != null &&
-                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + CommerceEventUtils.Constants.ATT_TAX), true)) {
+                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, CommerceEventUtils.Constants.ATT_TAX), true)) {
                 attributes.setTax(null);
             }
             if (attributes.getRevenue() != null &&
-                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + CommerceEventUtils.Constants.ATT_TOTAL), true)) {
+                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, CommerceEventUtils.Constants.ATT_TOTAL), true)) {
                 attributes.setRevenue(0.0);
             }
             if (attributes.getId() != null &&
-                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + CommerceEventUtils.Constants.ATT_TRANSACTION_ID), true)) {
+                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, CommerceEventUtils.Constants.ATT_TRANSACTION_ID), true)) {
                 attributes.setId(null);
             }
             if (attributes.getAffiliation() != null &&
-                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType + CommerceEventUtils.Constants.ATT_AFFILIATION), true)) {
+                    !mCommerceAttributeFilters.get(KitUtils.hashForFiltering(eventType, CommerceEventUtils.Constants.ATT_AFFILIATION), true)) {
                 attributes.setAffiliation(null);
             }
             builder.transactionAttributes(attributes);
@@ -900,7 +937,7 @@ public class KitConfiguration {
     }
 
     public boolean shouldLogScreen(String screenName) {
-        int nameHash = KitUtils.hashForFiltering("0" + screenName);
+        int nameHash = KitUtils.hashForFiltering(0, screenName);
         if (mScreenNameFilters.size() > 0 && !mScreenNameFilters.get(nameHash, true)) {
             return false;
         }
@@ -911,8 +948,23 @@ public class KitConfiguration {
         if (!shouldIncludeFromAttributeValueFiltering(event.getCustomAttributeStrings())) {
             return false;
         }
-        int typeHash = KitUtils.hashForFiltering(event.getEventType().ordinal() + "");
-        return mTypeFilters.get(typeHash, true) && mNameFilters.get(event.getEventHash(), true);
+        return shouldLogEventType(event.getEventType().ordinal(), event.getEventHash());
+    }
+
+    /**
+     * The part of {@link #shouldLogEvent(MPEvent)} that only depends on the event type and name,
+     * and can therefore be evaluated once per event type/name rather than once per event.
+     */
+    boolean shouldLogEventType(int eventTypeOrdinal, int eventHash) {
+        int typeHash = KitUtils.hashForFiltering(Integer.toString(eventTypeOrdinal));
+        return mTypeFilters.get(typeHash, true) && mNameFilters.get(eventHash, true);
+    }
+
+    /**
+     * The part of {@link #filterCommerceEvent(CommerceEvent)} that only depends on the event type.
+     */
+    boolean shouldLogCommerceEventType(int commerceEventType) {
+        return mTypeFilters == null || mTypeFilters.get(KitUtils.hashForFiltering(Integer.toString(commerceEventType)), true);
     }
 
     public boolean passesBracketing(int userBucket) {
@@ -0,0 +1,132 @@
+package com.mparticle.kits;
+
+import com.mparticle.MPEvent;
+import com.mparticle.MParticle;
+import com.mparticle.internal.Logger;
+import com.mparticle.kits.mappings.CustomMapping;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pre-computed view of which kits an event should be forwarded to.
+ * <p>
+ * A plan is built from a snapshot of the active kits, and resolves the filters which only depend
+ * on an event's type and name (event type filters, event name filters and the custom mappings
+ * which could possibly match) once per type/name. The result is cached, so forwarding an event
+ * which a kit is not interested in costs a single table lookup, rather than a full pass over every
+ * kit's configuration. Filters which depend on the event's attributes are still evaluated per event.
+ * <p>
+ * A plan is immutable with respect to its kits, so it must be replaced whenever the set of
+ * active kits, or their configurations, change.
+ */
+final class KitForwardingPlan {
+    /**
+     * Upper bound on the number of cached routes per event type, so that apps with
+     * dynamically generated event names don't grow the cache without bound.
+     */
+    static final int MAX_ROUTES_PER_TYPE = 256;
+    private static final int MESSAGE_TYPE_EVENT = 4;
+
+    private final List<KitIntegration> mEventListeners = new ArrayList<KitIntegration>();
+    private final List<KitIntegration> mCommerceKits = new ArrayList<KitIntegration>();
+    private final List<ConcurrentHashMap<Integer, EventRoute[]>> mEventRoutes;
+    private final ConcurrentHashMap<Integer, KitIntegration[]> mCommerceRoutes = new ConcurrentHashMap<Integer, KitIntegration[]>();
+    private final int mVersion;
+
+    /**
+     * @param version the modification count of the kits when this plan was built
+     */
+    KitForwardingPlan(Collection<KitIntegration> kits, int version) {
+        mVersion = version;
+        for (KitIntegration kit : kits) {
+            if (kit instanceof KitIntegration.EventListener) {
+                mEventListeners.add(kit);
+            }
+            if (kit instanceof KitIntegration.CommerceListener || kit instanceof KitIntegration.EventListener) {
+                mCommerceKits.add(kit);
+            }
+        }
+        int eventTypes = MParticle.EventType.values().length;
+        mEventRoutes = new ArrayList<ConcurrentHashMap<Integer, EventRoute[]>>(eventTypes);
+        for (int i = 0; i < eventTypes; i++) {
+            mEventRoutes.add(new ConcurrentHashMap<Integer, EventRoute[]>());
+        }
+    }
+
+    int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * The kits which, based on the event's type and name, should receive the given (non-screen)
+     * MPEvent, in the same order as the kits this plan was built with.
+     */
+    EventRoute[] getEventRoutes(MPEvent event) {
+        int eventTypeOrdinal = event.getEventType().ordinal();
+        int eventHash = event.getEventHash();
+        ConcurrentHashMap<Integer, EventRoute[]> routes = mEventRoutes.get(eventTypeOrdinal);
+        EventRoute[] route = routes.get(eventHash);
+        if (route == null) {
+            route = buildEventRoute(eventTypeOrdinal, eventHash);
+            if (routes.size() >= MAX_ROUTES_PER_TYPE) {
+                routes.clear();
+            }
+            routes.put(eventHash, route);
+        }
+        return route;
+    }
+
+    /**
+     * The kits which, based on the event type alone, should receive a CommerceEvent of the
+     * given type.
+     */
+    KitIntegration[] getCommerceRoute(int commerceEventType) {
+        KitIntegration[] route = mCommerceRoutes.get(commerceEventType);
+        if (route == null) {
+            List<KitIntegration> kits = new ArrayList<KitIntegration>(mCommerceKits.size());
+            for (KitIntegration kit : mCommerceKits) {
+                try {
+                    if (kit.getConfiguration().shouldLogCommerceEventType(commerceEventType)) {
+                        kits.add(kit);
+                    }
+                } catch (Exception e) {
+                    Logger.warning("Failed to evaluate commerce event filters for kit: " + kit.getName() + ": " + e.getMessage());
+                }
+            }
+            route = kits.toArray(new KitIntegration[0]);
+            mCommerceRoutes.put(commerceEventType, route);
+        }
+        return route;
+    }
+
+    private EventRoute[] buildEventRoute(int eventTypeOrdinal, int eventHash) {
+        List<EventRoute> routes = new ArrayList<EventRoute>(mEventListeners.size());
+        for (KitIntegration kit : mEventListeners) {
+            try {
+                KitConfiguration configuration = kit.getConfiguration();
+                if (configuration.shouldLogEventType(eventTypeOrdinal, eventHash)) {
+                    routes.add(new EventRoute(kit, CustomMapping.getCandidateMappings(configuration.getCustomMappingList(), MESSAGE_TYPE_EVENT, eventHash)));
+                }
+            } catch (Exception e) {
+                Logger.warning("Failed to evaluate event filters for kit: " + kit.getName() + ": " + e.getMessage());
+            }
+        }
+        return routes.toArray(new EventRoute[0]);
+    }
+
+    static final class EventRoute {
+        final KitIntegration kit;
+        /**
+         * The kit's custom mappings which could match events of this type and name.
+         */
+        final List<CustomMapping> customMappings;
+
+        EventRoute(KitIntegration kit, List<CustomMapping> customMappings) {
+            this.kit = kit;
+            this.customMappings = customMappings;
+        }
+    }
+}
@@ -607,7 +607,17 @@ public abstract class KitIntegration {
         void onConsentStateUpdated(ConsentState oldState, ConsentState newState, FilteredMParticleUser user);
     }
 
+    /**
+     * Kits should implement this interface in order to receive each batch after it has been uploaded.
+     */
     public interface BatchListener {
+        /**
+         * Called on the kit thread after a batch has been successfully uploaded.
+         *
+         * @param jsonObject the uploaded batch. This instance is shared with other kits and is read-only,
+         *                   any attempt to modify it will throw an UnsupportedOperationException
+         * @return a list of ReportingMessages, or null
+         */
         List<ReportingMessage> logBatch(JSONObject jsonObject);
     }
 
@@ -6,6 +6,7 @@ import android.content.Intent;
 import android.graphics.Typeface;
 import android.location.Location;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
@@ -14,6 +15,7 @@ import android.os.Looper;
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
 import com.mparticle.AttributionError;
 import com.mparticle.AttributionListener;
@@ -47,13 +49,15 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class KitManagerImpl implements KitManager, AttributionListener, UserAttributeListener, IdentityStateListener {
 
@@ -80,7 +84,8 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
     private ArrayList<KitsLoadedListener> kitsLoadedListeners = new ArrayList<>();
 
 
-    ConcurrentHashMap<Integer, KitIntegration> providers = new ConcurrentHashMap<Integer, KitIntegration>();
+    KitProviderMap providers = new KitProviderMap();
+    private volatile KitForwardingPlan mForwardingPlan;
     private final Context mContext;
 
     public KitManagerImpl(Context context, ReportingManager reportingManager, CoreCallbacks coreCallbacks, MParticleOptions options) {
@@ -254,9 +259,8 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
             }
         }
 
-        Iterator<Integer> ids = providers.keySet().iterator();
-        while (ids.hasNext()) {
-            Integer id = ids.next();
+        //kits are removed through the map itself, rather than its key set, so that the forwarding plan is rebuilt
+        for (Integer id : providers.keySet()) {
             if (!activeIds.contains(id)) {
                 KitIntegration integration = providers.get(id);
                 if (integration != null) {
@@ -265,14 +269,32 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                     integration.onKitDestroy();
                     integration.onKitCleanup();
                 }
-                ids.remove();
+                providers.remove(id);
                 Intent intent = new Intent(MParticle.ServiceProviders.BROADCAST_DISABLED + id);
                 getContext().sendBroadcast(intent);
             }
         }
+        //kit configurations may have changed even if the set of kits did not
+        providers.invalidate();
         onKitsLoaded(new HashMap<>(providers), previousKits, new ArrayList<>(kitConfigurations));
     }
 
+    /**
+     * Returns the forwarding plan for the current set of kits, rebuilding it if the kits
+     * have changed since it was last built.
+     */
+    KitForwardingPlan getForwardingPlan() {
+        //the version is read before the kits, so a plan built from a stale view of the map is
+        //stored under a stale version, and rebuilt on the next call
+        int version = providers.getVersion();
+        KitForwardingPlan plan = mForwardingPlan;
+        if (plan == null || plan.getVersion() != version) {
+            plan = new KitForwardingPlan(providers.values(), version);
+            mForwardingPlan = plan;
+        }
+        return plan;
+    }
+
     private void initializeKit(KitIntegration activeKit) {
         Logger.debug("Initializing kit: " + activeKit.getName());
         activeKit.onKitCreate(activeKit.getConfiguration().getSettings(), getContext());
@@ -361,7 +383,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
             try {
                 if (!provider.isDisabled()) {
                     provider.setLocation(location);
-                    mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), true, location);
+                    if (mCoreCallbacks.getKitListener().isEnabled()) {
+                        mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.setLocation()", "KitManagerImpl.setLocation()", "setLocation()", provider.getConfiguration().getKitId(), true, location);
+                    }
                 }
             } catch (Exception e) {
                 Logger.warning("Failed to call setLocation for kit: " + provider.getName() + ": " + e.getMessage());
@@ -376,7 +400,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                 if (!provider.isDisabled()) {
                     List<ReportingMessage> report = provider.logNetworkPerformance(url, startTime, method, length, bytesSent, bytesReceived, requestString, responseCode);
                     getReportingManager().logAll(report);
-                    mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), url, startTime, method, length, bytesSent, bytesReceived, requestString, responseCode);
+                    if (mCoreCallbacks.getKitListener().isEnabled()) {
+                        mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logNetworkPerformance()", "KitManagerImpl.logNetworkPerformance()", "logNetworkPerformance()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), url, startTime, method, length, bytesSent, bytesReceived, requestString, responseCode);
+                    }
                 }
             } catch (Exception e) {
                 Logger.warning("Failed to call logNetworkPerformance for kit: " + provider.getName() + ": " + e.getMessage());
@@ -404,7 +430,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                 if (!provider.isDisabled(true)) {
                     List<ReportingMessage> messages = provider.setOptOut(optOutStatus);
                     getReportingManager().logAll(messages);
-                    mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(messages), optOutStatus);
+                    if (mCoreCallbacks.getKitListener().isEnabled()) {
+                        mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.setOptOut()", "KitManagerImpl.setOptOut()", "setOptOut()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(messages), optOutStatus);
+                    }
                 }
             } catch (Exception e) {
                 Logger.warning("Failed to call setOptOut for kit: " + provider.getName() + ": " + e.getMessage());
@@ -429,11 +457,15 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
         for (KitIntegration provider : providers.values()) {
             try {
                 List<ReportingMessage> messages = provider.logBaseEvent(event);
-                mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(messages), event);
+                if (mCoreCallbacks.getKitListener().isEnabled()) {
+                    mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logEvent()", "logBaseEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(messages), event);
+                }
                 mReportingManager.logAll(messages);
             } catch (Exception e) {
                 Logger.warning("Failed to call logMPEvent for kit: " + provider.getName() + ": " + e.getMessage());
-                mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), false, event, e);
+                if (mCoreCallbacks.getKitListener().isEnabled()) {
+                    mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logEvent()", "logBaseEvent()", provider.getConfiguration().getKitId(), false, event, e);
+                }
             }
         }
         if (event instanceof MPEvent) {
@@ -448,7 +480,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
     //================================================================================
 
     protected void logCommerceEvent(CommerceEvent event) {
-        for (KitIntegration provider : providers.values()) {
+        //EventListener kits with identical commerce filters share the expansion of their filtered event
+        Map<String, List<MPEvent>> expandedEvents = null;
+        for (KitIntegration provider : getForwardingPlan().getCommerceRoute(CommerceEventUtils.getEventType(event))) {
             try {
                 if (!provider.isDisabled()) {
                     CommerceEvent filteredEvent = provider.getConfiguration().filterCommerceEvent(event);
@@ -469,12 +503,16 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                                     if (result.getMPEvent() != null) {
                                         MPEvent projectedEvent = projectedEvents.get(i).getMPEvent();
                                         report = ((KitIntegration.EventListener) provider).logEvent(projectedEvent);
-                                        mCoreCallbacks.getKitListener().onKitApiCalled("logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), projectedEvent);
+                                        if (mCoreCallbacks.getKitListener().isEnabled()) {
+                                            mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logCommerceEvent()", "logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), projectedEvent);
+                                        }
                                         messageType = ReportingMessage.MessageType.EVENT;
                                     } else {
                                         CommerceEvent projectedEvent = projectedEvents.get(i).getCommerceEvent();
                                         report = ((KitIntegration.CommerceListener) provider).logEvent(projectedEvent);
-                                        mCoreCallbacks.getKitListener().onKitApiCalled("logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), projectedEvent);
+                                        if (mCoreCallbacks.getKitListener().isEnabled()) {
+                                            mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logCommerceEvent()", "logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), projectedEvent);
+                                        }
                                         messageType = ReportingMessage.MessageType.COMMERCE_EVENT;
                                     }
                                     if (report != null && report.size() > 0) {
@@ -494,7 +532,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                                 }
                             } else {
                                 List<ReportingMessage> reporting = ((KitIntegration.CommerceListener) provider).logEvent(filteredEvent);
-                                mCoreCallbacks.getKitListener().onKitApiCalled("logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(reporting), filteredEvent);
+                                if (mCoreCallbacks.getKitListener().isEnabled()) {
+                                    mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logCommerceEvent()", "logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(reporting), filteredEvent);
+                                }
                                 if (reporting != null && reporting.size() > 0) {
                                     getReportingManager().log(
                                             ReportingMessage.fromEvent(provider, filteredEvent)
@@ -502,12 +542,22 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                                 }
                             }
                         } else if (provider instanceof KitIntegration.EventListener) {
-                            List<MPEvent> events = CommerceEventUtils.expand(filteredEvent);
+                            String filterSignature = provider.getConfiguration().getCommerceFilterSignature();
+                            if (expandedEvents == null) {
+                                expandedEvents = new HashMap<String, List<MPEvent>>(4);
+                            }
+                            List<MPEvent> events = expandedEvents.get(filterSignature);
+                            if (events == null) {
+                                events = new ExpandedCommerceEvents(filteredEvent);
+                                expandedEvents.put(filterSignature, events);
+                            }
                             boolean forwarded = false;
                             if (events != null) {
                                 for (MPEvent expandedEvent : events) {
                                     List<ReportingMessage> reporting = ((KitIntegration.EventListener) provider).logEvent(expandedEvent);
-                                    mCoreCallbacks.getKitListener().onKitApiCalled("logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(reporting), expandedEvent);
+                                    if (mCoreCallbacks.getKitListener().isEnabled()) {
+                                        mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logCommerceEvent()", "logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(reporting), expandedEvent);
+                                    }
                                     forwarded = forwarded || (reporting != null && reporting.size() > 0);
                                 }
                             }
@@ -536,10 +586,14 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                 try {
                     if (!provider.isDisabled()) {
                         boolean willHandlePush = ((KitIntegration.PushListener) provider).willHandlePushMessage(intent);
-                        mCoreCallbacks.getKitListener().onKitApiCalled("willHandlePushMessage()", provider.getConfiguration().getKitId(), willHandlePush, intent);
+                        if (mCoreCallbacks.getKitListener().isEnabled()) {
+                            mCoreCallbacks.getKitListener().onKitApiCalled(null, "KitManagerImpl.onMessageReceived()", "willHandlePushMessage()", provider.getConfiguration().getKitId(), willHandlePush, intent);
+                        }
                         if (willHandlePush) {
                             ((KitIntegration.PushListener) provider).onPushMessageReceived(context, intent);
-                            mCoreCallbacks.getKitListener().onKitApiCalled("onPushMessageReceived()", provider.getConfiguration().getKitId(), null, context, intent);
+                            if (mCoreCallbacks.getKitListener().isEnabled()) {
+                                mCoreCallbacks.getKitListener().onKitApiCalled(null, "KitManagerImpl.onMessageReceived()", "onPushMessageReceived()", provider.getConfiguration().getKitId(), null, context, intent);
+                            }
                             ReportingMessage message = ReportingMessage.fromPushMessage(provider, intent);
                             getReportingManager().log(message);
                             return true;
@@ -560,7 +614,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                 try {
                     if (!provider.isDisabled()) {
                         boolean onPushRegistration = ((KitIntegration.PushListener) provider).onPushRegistration(token, senderId);
-                        mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), onPushRegistration, token, senderId);
+                        if (mCoreCallbacks.getKitListener().isEnabled()) {
+                            mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logPushRegistration()", "KitManagerImpl.onPushRegistration()", "onPushRegistration()", provider.getConfiguration().getKitId(), onPushRegistration, token, senderId);
+                        }
                         if (onPushRegistration) {
                             ReportingMessage message = ReportingMessage.fromPushRegistrationMessage(provider);
                             getReportingManager().log(message);
@@ -824,16 +880,17 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
             logScreen(event);
             return;
         }
-        for (KitIntegration provider : providers.values()) {
+        for (KitForwardingPlan.EventRoute route : getForwardingPlan().getEventRoutes(event)) {
+            KitIntegration provider = route.kit;
             try {
-                if (provider instanceof KitIntegration.EventListener && !provider.isDisabled() && provider.getConfiguration().shouldLogEvent(event)) {
+                if (!provider.isDisabled() && provider.getConfiguration().shouldIncludeFromAttributeValueFiltering(event.getCustomAttributeStrings())) {
                     MPEvent eventCopy = new MPEvent(event);
                     eventCopy.setCustomAttributes(
                             provider.getConfiguration().filterEventAttributes(eventCopy)
                     );
                     List<CustomMapping.ProjectionResult> projectedEvents = CustomMapping.projectEvents(
                             eventCopy,
-                            provider.getConfiguration().getCustomMappingList(),
+                            route.customMappings,
                             provider.getConfiguration().getDefaultEventProjection()
                     );
                     List<ReportingMessage> reportingMessages = new LinkedList<ReportingMessage>();
@@ -849,7 +906,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                                     eventCopy.getCustomAttributeStrings());
                         } else {
                             messages = ((KitIntegration.EventListener) provider).logEvent(eventCopy);
-                            mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(messages), eventCopy);
+                            if (mCoreCallbacks.getKitListener().isEnabled()) {
+                                mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logMPEvent()", "logEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(messages), eventCopy);
+                            }
                         }
                         if (messages != null && messages.size() > 0) {
                             reportingMessages.addAll(messages);
@@ -860,7 +919,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                         for (int i = 0; i < projectedEvents.size(); i++) {
                             MPEvent projectedEvent = projectedEvents.get(i).getMPEvent();
                             List<ReportingMessage> messages = ((KitIntegration.EventListener) provider).logEvent(projectedEvent);
-                            mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(messages), projectedEvent);
+                            if (mCoreCallbacks.getKitListener().isEnabled()) {
+                                mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logEvent()", "KitManagerImpl.logMPEvent()", "logEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(messages), projectedEvent);
+                            }
 
                             if (messages != null && messages.size() > 0) {
                                 forwarded = true;
@@ -887,21 +948,38 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
         }
     }
 
+    /**
+     * Forward an uploaded batch to every {@link KitIntegration.BatchListener}. The batch is parsed
+     * once, on the kit thread, and each kit receives the same read-only view of it.
+     */
     @Override
-    public void logBatch(String batch) {
+    public void logBatch(final String batch) {
+        final List<KitIntegration> batchListeners = new ArrayList<KitIntegration>();
         for (KitIntegration provider : providers.values()) {
+            if (provider instanceof KitIntegration.BatchListener) {
+                batchListeners.add(provider);
+            }
+        }
+        if (batchListeners.isEmpty()) {
+            return;
+        }
+        runOnKitThread(() -> {
+            JSONObject jsonObject;
             try {
-                if (provider instanceof KitIntegration.BatchListener) {
-                    JSONObject jsonObject = new JSONObject(batch);
+                jsonObject = new ReadOnlyJSONObject(new JSONObject(batch));
+            } catch (JSONException jse) {
+                Logger.error(jse, "Failed to call logBatch (unable to deserialize Batch): " + jse.getMessage());
+                return;
+            }
+            for (KitIntegration provider : batchListeners) {
+                try {
                     List<ReportingMessage> reportingMessages = ((KitIntegration.BatchListener) provider).logBatch(jsonObject);
                     getReportingManager().logAll(reportingMessages);
+                } catch (Exception e) {
+                    Logger.warning("Failed to call logBatch for kit: " + provider.getName() + ": " + e.getMessage());
                 }
-            } catch (JSONException jse) {
-                Logger.error(jse, "Failed to call logBatch (unable to deserialize Batch) for kit" + provider.getName() + ": " + jse.getMessage());
-            } catch (Exception e) {
-                Logger.warning("Failed to call logBatch for kit: " + provider.getName() + ": " + e.getMessage());
             }
-        }
+        });
     }
 
     @Override
@@ -911,7 +989,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                 if (provider instanceof KitIntegration.EventListener && !provider.isDisabled()) {
                     List<ReportingMessage> report = ((KitIntegration.EventListener) provider).leaveBreadcrumb(breadcrumb);
                     getReportingManager().logAll(report);
-                    mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), breadcrumb);
+                    if (mCoreCallbacks.getKitListener().isEnabled()) {
+                        mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.leaveBreadcrumb()", "KitManagerImpl.leaveBreadcrumb()", "leaveBreadcrumb()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), breadcrumb);
+                    }
                 }
             } catch (Exception e) {
                 Logger.warning("Failed to call leaveBreadcrumb for kit: " + provider.getName() + ": " + e.getMessage());
@@ -926,7 +1006,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                 if (provider instanceof KitIntegration.EventListener && !provider.isDisabled()) {
                     List<ReportingMessage> report = ((KitIntegration.EventListener) provider).logError(message, eventData);
                     getReportingManager().logAll(report);
-                    mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), message, eventData);
+                    if (mCoreCallbacks.getKitListener().isEnabled()) {
+                        mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logError()", "KitManagerImpl.logError()", "logError()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), message, eventData);
+                    }
                 }
             } catch (Exception e) {
                 Logger.warning("Failed to call logError for kit: " + provider.getName() + ": " + e.getMessage());
@@ -941,7 +1023,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                 if (provider instanceof KitIntegration.EventListener && !provider.isDisabled()) {
                     List<ReportingMessage> report = ((KitIntegration.EventListener) provider).logException(exception, eventData, message);
                     getReportingManager().logAll(report);
-                    mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), exception, message, eventData);
+                    if (mCoreCallbacks.getKitListener().isEnabled()) {
+                        mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logException()", "KitManagerImpl.logException()", "logException()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), exception, message, eventData);
+                    }
                 }
             } catch (Exception e) {
                 Logger.warning("Failed to call logException for kit: " + provider.getName() + ": " + e.getMessage());
@@ -974,7 +1058,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                         String eventName = filteredEvent.getEventName();
                         Map<String, String> eventInfo = filteredEvent.getCustomAttributeStrings();
                         List<ReportingMessage> report = ((KitIntegration.EventListener) provider).logScreen(eventName, eventInfo);
-                        mCoreCallbacks.getKitListener().onKitApiCalled(provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), eventName, eventInfo);
+                        if (mCoreCallbacks.getKitListener().isEnabled()) {
+                            mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logScreen()", "KitManagerImpl.logScreen()", "logScreen()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), eventName, eventInfo);
+                        }
                         if (report != null && report.size() > 0) {
                             for (ReportingMessage message : report) {
                                 message.setMessageType(ReportingMessage.MessageType.SCREEN_VIEW);
@@ -990,7 +1076,9 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
                         boolean forwarded = false;
                         for (CustomMapping.ProjectionResult projectedEvent : projectedEvents) {
                             List<ReportingMessage> report = ((KitIntegration.EventListener) provider).logEvent(projectedEvent.getMPEvent());
-                            mCoreCallbacks.getKitListener().onKitApiCalled("logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), projectedEvent);
+                            if (mCoreCallbacks.getKitListener().isEnabled()) {
+                                mCoreCallbacks.getKitListener().onKitApiCalled("MParticle.logScreen()", "KitManagerImpl.logScreen()", "logMPEvent()", provider.getConfiguration().getKitId(), !MPUtility.isEmpty(report), projectedEvent);
+                            }
                             if (report != null && report.size() > 0) {
                                 forwarded = true;
                                 for (ReportingMessage message : report) {
@@ -1469,4 +1557,149 @@ public class KitManagerImpl implements KitManager, AttributionListener, UserAttr
     interface KitsLoadedListener {
         void onKitsLoaded(Map<Integer, KitIntegration> kits, Map<Integer, KitIntegration> previousKits, List<KitConfiguration> kitConfigs);
     }
+
+    /**
+     * The map of active kits, which keeps a modification count so that the
+     * {@link KitForwardingPlan} can tell when it needs to be rebuilt. The count is incremented
+     * after each modification completes.
+     * <p>
+     * Modifications made through the {@link #keySet()}, {@link #values()} or {@link #entrySet()}
+     * views are not counted, so kits must be removed through the map itself.
+     */
+    static final class KitProviderMap extends ConcurrentHashMap<Integer, KitIntegration> {
+        private final AtomicInteger version = new AtomicInteger();
+
+        int getVersion() {
+            return version.get();
+        }
+
+        /**
+         * Force the forwarding plan to be rebuilt, for example after a kit's configuration changed.
+         */
+        void invalidate() {
+            version.incrementAndGet();
+        }
+
+        @Override
+        public KitIntegration put(Integer key, KitIntegration value) {
+            try {
+                return super.put(key, value);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public KitIntegration putIfAbsent(Integer key, KitIntegration value) {
+            try {
+                return super.putIfAbsent(key, value);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void putAll(Map<? extends Integer, ? extends KitIntegration> m) {
+            try {
+                super.putAll(m);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public KitIntegration remove(Object key) {
+            try {
+                return super.remove(key);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            try {
+                return super.remove(key, value);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public KitIntegration replace(Integer key, KitIntegration value) {
+            try {
+                return super.replace(key, value);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean replace(Integer key, KitIntegration oldValue, KitIntegration newValue) {
+            try {
+                return super.replace(key, oldValue, newValue);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void clear() {
+            try {
+                super.clear();
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @RequiresApi(Build.VERSION_CODES.N)
+        @Override
+        public KitIntegration compute(Integer key, BiFunction<? super Integer, ? super KitIntegration, ? extends KitIntegration> remappingFunction) {
+            try {
+                return super.compute(key, remappingFunction);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @RequiresApi(Build.VERSION_CODES.N)
+        @Override
+        public KitIntegration computeIfAbsent(Integer key, Function<? super Integer, ? extends KitIntegration> mappingFunction) {
+            try {
+                return super.computeIfAbsent(key, mappingFunction);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @RequiresApi(Build.VERSION_CODES.N)
+        @Override
+        public KitIntegration computeIfPresent(Integer key, BiFunction<? super Integer, ? super KitIntegration, ? extends KitIntegration> remappingFunction) {
+            try {
+                return super.computeIfPresent(key, remappingFunction);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @RequiresApi(Build.VERSION_CODES.N)
+        @Override
+        public KitIntegration merge(Integer key, KitIntegration value, BiFunction<? super KitIntegration, ? super KitIntegration, ? extends KitIntegration> remappingFunction) {
+            try {
+                return super.merge(key, value, remappingFunction);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @RequiresApi(Build.VERSION_CODES.N)
+        @Override
+        public void replaceAll(BiFunction<? super Integer, ? super KitIntegration, ? extends KitIntegration> function) {
+            try {
+                super.replaceAll(function);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+    }
 }
@@ -14,6 +14,7 @@ import com.mparticle.MParticle;
 import com.mparticle.internal.MPUtility;
 
 import java.math.BigInteger;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -64,6 +65,118 @@ public final class KitUtils {
         return MPUtility.mpHash(input);
     }
 
+    /**
+     * Equivalent to {@code hashForFiltering(type + name)}, without the intermediate String.
+     *
+     * @param type the event or message type prefix
+     * @param name
+     * @return return int hash
+     */
+    public static int hashForFiltering(int type, @Nullable String name) {
+        return MPUtility.mpHash(type, name);
+    }
+
+    /**
+     * Equivalent to {@code hashForFiltering(type + name + key)}, without the intermediate String.
+     * Attribute hashes are computed once per event for every kit, so results are kept in a
+     * bounded LRU cache which is shared between kits.
+     *
+     * @param type the event type prefix
+     * @param name the event name
+     * @param key  the attribute key
+     * @return return int hash
+     */
+    public static int hashForFiltering(int type, @Nullable String name, @Nullable String key) {
+        return FilterHashCache.get(type, name, key);
+    }
+
+    /**
+     * LRU cache of (type, name, key) -> mpHash. Lookups use a per-thread probe key, so a
+     * cache hit does not allocate.
+     */
+    static final class FilterHashCache {
+        static final int MAX_SIZE = 512;
+
+        private static final ThreadLocal<Key> sProbe = new ThreadLocal<Key>() {
+            @Override
+            protected Key initialValue() {
+                return new Key();
+            }
+        };
+
+        private static final LinkedHashMap<Key, Integer> sCache = new LinkedHashMap<Key, Integer>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+                return size() > MAX_SIZE;
+            }
+        };
+
+        static int get(int type, @Nullable String name, @Nullable String key) {
+            Key probe = sProbe.get().set(type, name, key);
+            synchronized (sCache) {
+                Integer hash = sCache.get(probe);
+                if (hash != null) {
+                    return hash;
+                }
+            }
+            int hash = MPUtility.mpHash(type, name, key);
+            synchronized (sCache) {
+                sCache.put(new Key().set(type, name, key), hash);
+            }
+            return hash;
+        }
+
+        static int size() {
+            synchronized (sCache) {
+                return sCache.size();
+            }
+        }
+
+        static void clear() {
+            synchronized (sCache) {
+                sCache.clear();
+            }
+        }
+
+        private static final class Key {
+            int type;
+            String name;
+            String key;
+            int hashCode;
+
+            Key set(int type, String name, String key) {
+                this.type = type;
+                this.name = name;
+                this.key = key;
+                int result = type;
+                result = 31 * result + (name != null ? name.hashCode() : 0);
+                result = 31 * result + (key != null ? key.hashCode() : 0);
+                this.hashCode = result;
+                return this;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) {
+                    return true;
+                }
+                if (!(o instanceof Key)) {
+                    return false;
+                }
+                Key other = (Key) o;
+                return type == other.type
+                        && hashCode == other.hashCode
+                        && (name == null ? other.name == null : name.equals(other.name))
+                        && (key == null ? other.key == null : key.equals(other.key));
+            }
+
+            @Override
+            public int hashCode() {
+                return hashCode;
+            }
+        }
+    }
+
 
     /**
      * Determine if the given CharSequence is null or 0-length. This is the same
@@ -0,0 +1,106 @@
+package com.mparticle.kits;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A read-only view of a JSONArray.
+ *
+ * @see ReadOnlyJSONObject
+ */
+final class ReadOnlyJSONArray extends JSONArray {
+    private Object[] readOnlyValues;
+
+    ReadOnlyJSONArray(JSONArray source) throws JSONException {
+        super();
+        for (int i = 0; i < source.length(); i++) {
+            super.put(source.opt(i));
+        }
+    }
+
+    @Override
+    public Object opt(int index) {
+        return readOnlyValue(index, super.opt(index));
+    }
+
+    @Override
+    public Object get(int index) throws JSONException {
+        return readOnlyValue(index, super.get(index));
+    }
+
+    private Object readOnlyValue(int index, Object value) {
+        if (!(value instanceof JSONObject || value instanceof JSONArray)) {
+            return value;
+        }
+        if (readOnlyValues == null) {
+            readOnlyValues = new Object[length()];
+        }
+        Object readOnlyValue = readOnlyValues[index];
+        if (readOnlyValue == null) {
+            try {
+                readOnlyValue = ReadOnlyJSONObject.readOnly(value);
+            } catch (JSONException e) {
+                //not possible, the values are copied from a valid JSONArray
+                throw new IllegalStateException(e);
+            }
+            readOnlyValues[index] = readOnlyValue;
+        }
+        return readOnlyValue;
+    }
+
+    @Override
+    public JSONArray put(boolean value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(double value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(int value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(long value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(Object value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(int index, boolean value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(int index, double value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(int index, int value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(int index, long value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public JSONArray put(int index, Object value) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+
+    @Override
+    public Object remove(int index) {
+        throw new UnsupportedOperationException("JSONArray is read-only");
+    }
+}
@@ -0,0 +1,139 @@
+package com.mparticle.kits;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A read-only view of a JSONObject, which can safely be shared between kits. Any attempt to modify
+ * it throws an {@link UnsupportedOperationException}.
+ * <p>
+ * Only the top level is copied, and only by reference. Nested objects and arrays are wrapped in
+ * {@link ReadOnlyJSONObject}s and {@link ReadOnlyJSONArray}s as they are read, so parts of the
+ * tree a kit never reads are never copied. The source must not be modified after it is wrapped.
+ */
+final class ReadOnlyJSONObject extends JSONObject {
+    private Map<String, Object> readOnlyValues;
+
+    ReadOnlyJSONObject(JSONObject source) throws JSONException {
+        super();
+        Iterator<String> keys = source.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            super.put(key, source.opt(key));
+        }
+    }
+
+    /**
+     * @return a read-only view of the value, if it is a JSONObject or JSONArray, otherwise the value
+     */
+    static Object readOnly(Object value) throws JSONException {
+        if (value instanceof JSONObject && !(value instanceof ReadOnlyJSONObject)) {
+            return new ReadOnlyJSONObject((JSONObject) value);
+        }
+        if (value instanceof JSONArray && !(value instanceof ReadOnlyJSONArray)) {
+            return new ReadOnlyJSONArray((JSONArray) value);
+        }
+        return value;
+    }
+
+    @Override
+    public Object opt(String name) {
+        return readOnlyValue(name, super.opt(name));
+    }
+
+    @Override
+    public Object get(String name) throws JSONException {
+        return readOnlyValue(name, super.get(name));
+    }
+
+    private Object readOnlyValue(String name, Object value) {
+        if (!(value instanceof JSONObject || value instanceof JSONArray)) {
+            return value;
+        }
+        if (readOnlyValues == null) {
+            readOnlyValues = new HashMap<String, Object>();
+        }
+        Object readOnlyValue = readOnlyValues.get(name);
+        if (readOnlyValue == null) {
+            try {
+                readOnlyValue = readOnly(value);
+            } catch (JSONException e) {
+                //not possible, the values are copied from a valid JSONObject
+                throw new IllegalStateException(e);
+            }
+            readOnlyValues.put(name, readOnlyValue);
+        }
+        return readOnlyValue;
+    }
+
+    @Override
+    public JSONObject put(String name, boolean value) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public JSONObject put(String name, double value) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public JSONObject put(String name, int value) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public JSONObject put(String name, long value) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public JSONObject put(String name, Object value) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public JSONObject putOpt(String name, Object value) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public JSONObject accumulate(String name, Object value) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public JSONObject append(String name, Object value) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public Object remove(String name) {
+        throw new UnsupportedOperationException("JSONObject is read-only");
+    }
+
+    @Override
+    public Iterator<String> keys() {
+        final Iterator<String> keys = super.keys();
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return keys.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("JSONObject is read-only");
+            }
+        };
+    }
+}
@@ -425,6 +425,36 @@ public class CustomMapping {
         return true;
     }
 
+    /**
+     * Returns the subset of {@code customMappingList}, in order, which could match an event with
+     * the given message type and event hash. Matches which depend on event attributes are kept,
+     * so the result still has to go through {@link #projectEvents(MPEvent, List, CustomMapping)}.
+     */
+    public static List<CustomMapping> getCandidateMappings(List<CustomMapping> customMappingList, int messageType, int eventHash) {
+        List<CustomMapping> candidates = new ArrayList<CustomMapping>(0);
+        if (customMappingList == null) {
+            return candidates;
+        }
+        for (CustomMapping customMapping : customMappingList) {
+            if (customMapping.couldMatch(messageType, eventHash)) {
+                candidates.add(customMapping);
+            }
+        }
+        return candidates;
+    }
+
+    boolean couldMatch(int messageType, int eventHash) {
+        if (mIsDefault) {
+            return true;
+        }
+        for (CustomMappingMatch match : matchList) {
+            if (!match.couldMatch(messageType, eventHash)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static List<CustomMapping.ProjectionResult> projectEvents(MPEvent event, boolean isScreenEvent, List<CustomMapping> customMappingList, CustomMapping defaultCustomMapping, CustomMapping defaultScreenCustomMapping) {
         List<CustomMapping.ProjectionResult> events = new LinkedList<CustomMapping.ProjectionResult>();
 
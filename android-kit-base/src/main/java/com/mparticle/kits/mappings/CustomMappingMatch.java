@@ -115,6 +115,20 @@ final class CustomMappingMatch {
         return false;
     }
 
+    /**
+     * Whether an MPEvent with the given message type and event hash could satisfy this match,
+     * without looking at its attributes.
+     */
+    boolean couldMatch(int messageType, int eventHash) {
+        if (messageType != mMessageType) {
+            return false;
+        }
+        if (mMatchType.startsWith(MATCH_TYPE_HASH)) {
+            return eventHash == mEventHash;
+        }
+        return mMatchType.startsWith(MATCH_TYPE_STRING);
+    }
+
     private boolean matchAppEvent(EventWrapper.MPEventWrapper eventWrapper) {
         MPEvent event = eventWrapper.getEvent();
         if (event == null) {
@@ -178,7 +192,7 @@ final class CustomMappingMatch {
             CommerceEventUtils.extractPromotionAttributes(promotion, promotionFields);
             if (promotionFields != null) {
                 for (Map.Entry<String, String> entry : promotionFields.entrySet()) {
-                    int attributeHash = KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event) + entry.getKey());
+                    int attributeHash = KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event), entry.getKey());
                     if (attributeHash == hash) {
                         if (commerceMatchPropertyValues.contains(entry.getValue().toLowerCase(Locale.US))) {
                             matchedPromotions.add(promotion);
@@ -210,7 +224,7 @@ final class CustomMappingMatch {
             CommerceEventUtils.extractProductFields(product, productFields);
             if (productFields != null) {
                 for (Map.Entry<String, String> entry : productFields.entrySet()) {
-                    int attributeHash = KitUtils.hashForFiltering(type + entry.getKey());
+                    int attributeHash = KitUtils.hashForFiltering(type, entry.getKey());
                     if (attributeHash == hash) {
                         if (commerceMatchPropertyValues.contains(entry.getValue().toLowerCase(Locale.US))) {
                             matchedProducts.add(product);
@@ -239,7 +253,7 @@ final class CustomMappingMatch {
             Map<String, String> attributes = product.getCustomAttributes();
             if (attributes != null) {
                 for (Map.Entry<String, String> entry : attributes.entrySet()) {
-                    int attributeHash = KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event) + entry.getKey());
+                    int attributeHash = KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event), entry.getKey());
                     if (attributeHash == hash) {
                         if (commerceMatchPropertyValues.contains(entry.getValue().toLowerCase(Locale.US))) {
                             matchedProducts.add(product);
@@ -264,7 +278,7 @@ final class CustomMappingMatch {
         }
         int hash = Integer.parseInt(commerceMatchPropertyName);
         for (Map.Entry<String, String> entry : attributes.entrySet()) {
-            int attributeHash = KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event) + entry.getKey());
+            int attributeHash = KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event), entry.getKey());
             if (attributeHash == hash) {
                 return commerceMatchPropertyValues.contains(entry.getValue().toLowerCase(Locale.US));
             }
@@ -277,7 +291,7 @@ final class CustomMappingMatch {
         Map<String, String> fields = new HashMap<String, String>();
         CommerceEventUtils.extractActionAttributes(event, fields);
         for (Map.Entry<String, String> entry : fields.entrySet()) {
-            int fieldHash = KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event) + entry.getKey());
+            int fieldHash = KitUtils.hashForFiltering(CommerceEventUtils.getEventType(event), entry.getKey());
             if (fieldHash == hash) {
                 return commerceMatchPropertyValues.contains(entry.getValue().toLowerCase(Locale.US));
             }
@@ -1,5 +1,10 @@
 package com.mparticle.kits
 
+import com.mparticle.commerce.CommerceEvent
+import com.mparticle.commerce.Impression
+import com.mparticle.commerce.Product
+import com.mparticle.commerce.Promotion
+import com.mparticle.commerce.TransactionAttributes
 import org.junit.Assert
 import org.junit.Test
 
@@ -10,4 +15,31 @@ class CommerceEventUtilsTest {
         Assert.assertNotNull(CommerceEventUtils.expand(null))
         Assert.assertEquals(0, CommerceEventUtils.expand(null).size.toLong())
     }
+
+    @Test
+    @Throws(Exception::class)
+    fun testLazyExpansionMatchesExpand() {
+        val purchase = CommerceEvent.Builder(Product.PURCHASE, Product.Builder("name 1", "sku 1", 100.0).build())
+            .addProduct(Product.Builder("name 2", "sku 2", 50.0).build())
+            .addImpression(Impression("list", Product.Builder("name 3", "sku 3", 10.0).build()))
+            .transactionAttributes(TransactionAttributes("transaction id"))
+            .customAttributes(mapOf("key" to "value"))
+            .build()
+        val promotion = CommerceEvent.Builder(Promotion.CLICK, Promotion().setId("promotion id")).build()
+        for (event in listOf(purchase, promotion)) {
+            val expected = CommerceEventUtils.expand(event)
+            val expanded = ExpandedCommerceEvents(event)
+            Assert.assertEquals(expected.size, expanded.size)
+            // read out of order, as a kit could
+            for (i in expanded.indices.reversed()) {
+                Assert.assertEquals(expected[i].toString(), expanded[i].toString())
+                Assert.assertSame(expanded[i], expanded[i])
+            }
+            try {
+                expanded[0].customAttributes?.put("key", "modified")
+                Assert.fail("expanded events should be read-only")
+            } catch (expected: UnsupportedOperationException) {
+            }
+        }
+    }
 }
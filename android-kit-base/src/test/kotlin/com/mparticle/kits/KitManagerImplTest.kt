@@ -664,6 +664,136 @@ class KitManagerImplTest {
         Assert.assertEquals(2, manager.providers.size)
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun testForwardingPlanMatchesKitFilters() {
+        val manager: KitManagerImpl = MockKitManagerImpl()
+        val events = listOf(
+            MPEvent.Builder("Navigate", MParticle.EventType.Navigation).build(),
+            MPEvent.Builder("Purchase", MParticle.EventType.Transaction).build(),
+            MPEvent.Builder("Search", MParticle.EventType.Search).build(),
+            MPEvent.Builder("Other", MParticle.EventType.Other).build()
+        )
+        // 30 kits, each filtering out either the type or the name of one of the events
+        for (i in 0 until 30) {
+            val event = events[i % events.size]
+            val filters = JSONObject()
+            if (i % 2 == 0) {
+                val typeHash = KitUtils.hashForFiltering(event.eventType.ordinal.toString())
+                filters.put("et", JSONObject().put(typeHash.toString(), 0))
+            } else {
+                filters.put("ec", JSONObject().put(event.eventHash.toString(), 0))
+            }
+            val kit = Mockito.mock(
+                KitIntegration::class.java,
+                Mockito.withSettings().extraInterfaces(KitIntegration.EventListener::class.java)
+            )
+            Mockito.`when`(kit.configuration).thenReturn(
+                MockKitConfiguration.createKitConfiguration(
+                    JSONObject().put("id", i).put("hs", filters)
+                )
+            )
+            manager.providers[i] = kit
+        }
+        for (event in events) {
+            val expected = manager.providers.values.filter { it.configuration.shouldLogEvent(event) }
+            val routed = manager.forwardingPlan.getEventRoutes(event).map { it.kit }
+            Assert.assertEquals(expected, routed)
+            Assert.assertTrue(routed.size < 30)
+        }
+
+        // the plan is rebuilt when the set of kits changes
+        manager.providers.remove(1)
+        val routed = manager.forwardingPlan.getEventRoutes(events[1]).map { it.kit }
+        Assert.assertEquals(
+            manager.providers.values.filter { it.configuration.shouldLogEvent(events[1]) },
+            routed
+        )
+        var plan = manager.forwardingPlan
+        manager.providers.computeIfPresent(3) { _, _ -> null }
+        Assert.assertNotSame(plan, manager.forwardingPlan)
+        plan = manager.forwardingPlan
+        manager.providers.merge(5, manager.providers[5]!!) { _, _ -> null }
+        Assert.assertNotSame(plan, manager.forwardingPlan)
+        Assert.assertFalse(manager.providers.containsKey(5))
+        plan = manager.forwardingPlan
+        Assert.assertSame(plan, manager.forwardingPlan)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testLogBatchSharesReadOnlyBatch() {
+        val manager: KitManagerImpl = MockKitManagerImpl()
+        val batches = mutableListOf<JSONObject>()
+        for (id in 1..2) {
+            val kit = Mockito.mock(
+                KitIntegration::class.java,
+                Mockito.withSettings().extraInterfaces(KitIntegration.BatchListener::class.java)
+            )
+            Mockito.`when`((kit as KitIntegration.BatchListener).logBatch(Mockito.any(JSONObject::class.java)))
+                .thenAnswer {
+                    batches.add(it.arguments[0] as JSONObject)
+                    listOf<ReportingMessage>()
+                }
+            manager.providers[id] = kit
+        }
+        manager.logBatch("{\"id\":\"batch\",\"msgs\":[{\"dt\":\"e\"}]}")
+        Assert.assertEquals(2, batches.size)
+        Assert.assertSame(batches[0], batches[1])
+        Assert.assertEquals("batch", batches[0].getString("id"))
+        try {
+            batches[0].getJSONArray("msgs").getJSONObject(0).put("dt", "x")
+            Assert.fail("batch should be read-only")
+        } catch (expected: UnsupportedOperationException) {
+        }
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun testCommerceExpansionSharedByMatchingFilters() {
+        val manager: KitManagerImpl = MockKitManagerImpl()
+        val loggedEvents = hashMapOf<Int, MutableList<MPEvent>>()
+        var modified = false
+        for (id in 1..3) {
+            val kit = Mockito.mock(
+                KitIntegration::class.java,
+                Mockito.withSettings().extraInterfaces(KitIntegration.EventListener::class.java)
+            )
+            val config = JSONObject().put("id", id)
+            if (id == 3) {
+                config.put("hs", JSONObject().put("cea", JSONObject().put("12345", 0)))
+            }
+            Mockito.`when`(kit.configuration)
+                .thenReturn(MockKitConfiguration.createKitConfiguration(config))
+            Mockito.`when`((kit as KitIntegration.EventListener).logEvent(Mockito.any(MPEvent::class.java)))
+                .thenAnswer {
+                    val loggedEvent = it.arguments[0] as MPEvent
+                    loggedEvents.getOrPut(id) { mutableListOf() }.add(loggedEvent)
+                    // a kit trying to modify the event it receives
+                    try {
+                        loggedEvent.customAttributes?.put("kit $id", "modified")
+                        modified = true
+                    } catch (expected: UnsupportedOperationException) {
+                    }
+                    listOf<ReportingMessage>()
+                }
+            manager.providers[id] = kit
+        }
+        val commerceEvent = CommerceEvent.Builder(
+            Product.PURCHASE,
+            Product.Builder("name", "sku", 100.0).build()
+        ).build()
+        manager.logCommerceEvent(commerceEvent)
+        val first = loggedEvents[1]!!
+        Assert.assertTrue(first.isNotEmpty())
+        Assert.assertEquals(first.size, loggedEvents[2]!!.size)
+        for (i in first.indices) {
+            Assert.assertSame(first[i], loggedEvents[2]!![i])
+            Assert.assertNotSame(first[i], loggedEvents[3]!![i])
+        }
+        Assert.assertFalse(modified)
+    }
+
     internal inner class KitManagerEventCounter : MockKitManagerImpl() {
         var logBaseEventCalled = 0
         var logCommerceEventCalled = 0
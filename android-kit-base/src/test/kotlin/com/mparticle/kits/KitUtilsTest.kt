@@ -42,4 +42,30 @@ class KitUtilsTest {
         Assert.assertEquals("tester", KitUtils.join(singleElementList, "whatever"))
         Assert.assertEquals("1whatevertestwhatevertest 2", KitUtils.join(testList, "whatever"))
     }
+
+    @Test
+    @Throws(Exception::class)
+    fun testHashForFilteringParts() {
+        KitUtils.FilterHashCache.clear()
+        val names = arrayOf(null, "", "Event Name", "\u00c4rger", "MiXeD")
+        for (type in intArrayOf(0, 4, 16, 123)) {
+            for (name in names) {
+                Assert.assertEquals(
+                    KitUtils.hashForFiltering(type.toString() + name),
+                    KitUtils.hashForFiltering(type, name)
+                )
+                for (key in names) {
+                    val expected = KitUtils.hashForFiltering(type.toString() + name + key)
+                    Assert.assertEquals(expected, KitUtils.hashForFiltering(type, name, key))
+                    // second lookup is served from the cache
+                    Assert.assertEquals(expected, KitUtils.hashForFiltering(type, name, key))
+                }
+            }
+        }
+        Assert.assertEquals(4 * 5 * 5, KitUtils.FilterHashCache.size())
+        for (i in 0..KitUtils.FilterHashCache.MAX_SIZE) {
+            KitUtils.hashForFiltering(1, "name", "key$i")
+        }
+        Assert.assertEquals(KitUtils.FilterHashCache.MAX_SIZE, KitUtils.FilterHashCache.size())
+    }
 }